@@ -17,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
 import java.util.stream.Collectors;
@@ -134,6 +135,9 @@ public class LoggingAspect {
             if (body == null) {
                 return "[Status: " + responseEntity.getStatusCode() + ", Body: Empty]";
             }
+            if (body instanceof StreamingResponseBody) {
+                return "[Status: " + responseEntity.getStatusCode() + ", Body: StreamingResponseBody[streamed]]";
+            }
             if (body instanceof PagedResponse<?> pagedResponse) {
                 return String.format("PagedResponse[page=%d, size=%d, totalElements=%d, totalPages=%d, contentSize=%d]",
                         pagedResponse.getPageNumber(),
@@ -0,0 +1,18 @@
+package Polyakov.Bank.Card.Management.Systems.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает транзакционный метод, который нужно повторить при временном сбое конкурентного доступа:
+ * конфликте оптимистической блокировки, таймауте ожидания блокировки, взаимоблокировке или ошибке сериализации.
+ * Повтор выполняется {@link TransientFailureRetryAspect} снаружи транзакции, поэтому каждая попытка идет в новой.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnTransientFailure {
+}
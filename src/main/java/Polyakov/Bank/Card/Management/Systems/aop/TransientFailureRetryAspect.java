@@ -0,0 +1,123 @@
+package Polyakov.Bank.Card.Management.Systems.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.StaleStateException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Повторяет методы с {@link RetryOnTransientFailure} при временных сбоях конкурентного доступа,
+ * включая конфликты оптимистической блокировки (@Version).
+ * <p>
+ * Аспект имеет более высокий приоритет, чем транзакционный (@Order(0) против LOWEST_PRECEDENCE), поэтому
+ * оборачивает транзакцию целиком: неудачная попытка откатывается, следующая начинается в новой транзакции.
+ * Если метод вызван внутри уже открытой транзакции, повтор невозможен и ошибка пробрасывается сразу.
+ * Задержка между попытками растет экспоненциально со случайным разбросом, чтобы конкурирующие запросы
+ * не повторялись одновременно.
+ * <p>
+ * Метрики по каждому методу (тег method): card.write.attempts — попытки, card.write.conflicts — конфликты
+ * (тег reason), card.write.retries.exhausted — отказы после всех попыток. Доля конфликтов = conflicts / attempts.
+ */
+@Aspect
+@Component
+@Order(0)
+@Slf4j
+public class TransientFailureRetryAspect {
+
+    private static final String SQL_STATE_LOCK_NOT_AVAILABLE = "55P03";
+    private static final String SQL_STATE_DEADLOCK_DETECTED = "40P01";
+    private static final String SQL_STATE_SERIALIZATION_FAILURE = "40001";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public TransientFailureRetryAspect(MeterRegistry meterRegistry,
+                                       @Value("${app.retry.max-attempts:3}") int maxAttempts,
+                                       @Value("${app.retry.initial-backoff-ms:20}") long initialBackoffMs,
+                                       @Value("${app.retry.max-backoff-ms:500}") long maxBackoffMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Around("@annotation(Polyakov.Bank.Card.Management.Systems.aop.RetryOnTransientFailure)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        long backoffMs = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            meterRegistry.counter("card.write.attempts", "method", method).increment();
+            try {
+                return joinPoint.proceed();
+            } catch (RuntimeException e) {
+                String reason = transientFailureReason(e);
+                if (reason == null) {
+                    throw e;
+                }
+                meterRegistry.counter("card.write.conflicts", "method", method, "reason", reason).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("card.write.retries.exhausted", "method", method, "reason", reason).increment();
+                    log.warn("{} failed after {} attempts ({})", method, attempt, reason);
+                    throw e;
+                }
+                long delayMs = ThreadLocalRandom.current().nextLong(backoffMs / 2, backoffMs + 1);
+                log.debug("{} attempt {} failed ({}), retrying in {} ms", method, attempt, reason, delayMs);
+                Thread.sleep(delayMs);
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    /**
+     * Определяет, является ли ошибка временным сбоем конкурентного доступа.
+     * @return Причина для метрик или null, если ошибка не временная и повторять нельзя.
+     */
+    private String transientFailureReason(Throwable error) {
+        String reason = null;
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                switch (sqlException.getSQLState()) {
+                    case SQL_STATE_LOCK_NOT_AVAILABLE:
+                        return "lock_timeout";
+                    case SQL_STATE_DEADLOCK_DETECTED:
+                        return "deadlock";
+                    case SQL_STATE_SERIALIZATION_FAILURE:
+                        return "serialization_failure";
+                    default:
+                        break;
+                }
+            }
+            if (reason == null) {
+                if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException
+                        || cause instanceof StaleStateException) {
+                    reason = "optimistic_lock";
+                } else if (cause instanceof CannotAcquireLockException || cause instanceof LockTimeoutException) {
+                    reason = "lock_timeout";
+                } else if (cause instanceof PessimisticLockingFailureException
+                        || cause instanceof jakarta.persistence.PessimisticLockException) {
+                    reason = "lock_failure";
+                }
+            }
+        }
+        return reason;
+    }
+}
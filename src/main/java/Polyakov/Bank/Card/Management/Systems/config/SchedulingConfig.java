@@ -0,0 +1,12 @@
+package Polyakov.Bank.Card.Management.Systems.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает выполнение фоновых задач по расписанию (пакет job).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
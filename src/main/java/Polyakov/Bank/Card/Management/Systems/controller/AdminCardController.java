@@ -1,9 +1,14 @@
 package Polyakov.Bank.Card.Management.Systems.controller;
 
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardExportFormat;
 import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
 import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.BulkCreateCardsRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.CreateCardRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.UpdateBalanceShardsRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.UpdateCardStatusRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BulkCreateCardsResponse;
 import Polyakov.Bank.Card.Management.Systems.model.dto.response.PagedResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -21,6 +26,7 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.util.UUID;
@@ -40,6 +46,15 @@ public interface AdminCardController {
     @PostMapping
     public ResponseEntity<CardDto> createCard(@Valid @RequestBody CreateCardRequest request);
 
+    @Operation(summary = "Массовый выпуск карт",
+            description = "Выпускает до 10000 карт за один запрос. Ошибка одного элемента не отменяет выпуск остальных; результат возвращается по каждому элементу.")
+    @ApiResponse(responseCode = "200", description = "Запрос обработан, результаты по элементам в теле ответа", content = @Content(schema = @Schema(implementation = BulkCreateCardsResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Неверный запрос (ошибка валидации или слишком много элементов)")
+    @ApiResponse(responseCode = "401", description = "Неавторизован")
+    @ApiResponse(responseCode = "403", description = "Доступ запрещен (не админ)")
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreateCardsResponse> createCardsBulk(@Valid @RequestBody BulkCreateCardsRequest request);
+
     @Operation(summary = "Получить все карты (с фильтрацией)", description = "Возвращает постраничный список всех карт в системе с возможностью фильтрации.")
     @Parameters({
             @Parameter(name = "page", description = "Номер страницы (начиная с 0)", in = ParameterIn.QUERY, schema = @Schema(type = "integer", defaultValue = "0")),
@@ -48,7 +63,9 @@ public interface AdminCardController {
             @Parameter(name = "status", description = "Фильтр по статусу карты (ACTIVE, BLOCKED, EXPIRED)", in = ParameterIn.QUERY, schema = @Schema(implementation = CardStatus.class)),
             @Parameter(name = "ownerEmail", description = "Фильтр по email владельца", in = ParameterIn.QUERY, schema = @Schema(type = "string")),
             @Parameter(name = "minBalance", description = "Фильтр по минимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double")),
-            @Parameter(name = "maxBalance", description = "Фильтр по максимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double"))
+            @Parameter(name = "maxBalance", description = "Фильтр по максимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double")),
+            @Parameter(name = "cursor", description = "Курсор следующей страницы (nextCursor из предыдущего ответа); задает сортировку, page и sort игнорируются", in = ParameterIn.QUERY, schema = @Schema(type = "string")),
+            @Parameter(name = "total", description = "Общее количество: EXACT (COUNT, по умолчанию), ESTIMATE (оценка планировщика) или NONE (без подсчета)", in = ParameterIn.QUERY, schema = @Schema(implementation = PageTotalMode.class))
     })
     @ApiResponse(responseCode = "200", description = "Список карт получен")
     @GetMapping
@@ -57,7 +74,29 @@ public interface AdminCardController {
             @RequestParam(required = false) String ownerEmail,
             @RequestParam(required = false) BigDecimal minBalance,
             @RequestParam(required = false) BigDecimal maxBalance,
-            @ParameterObject @PageableDefault(size = 10, sort = "id") Pageable pageable);
+            @ParameterObject @PageableDefault(size = 10, sort = "id") Pageable pageable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "total", required = false) PageTotalMode totalMode);
+
+    @Operation(summary = "Выгрузить карты (CSV/NDJSON)", description = "Потоково выгружает все карты, подходящие под фильтры, в порядке id. " +
+            "Строки пишутся в ответ по мере чтения из БД, номера карт только маскированные.")
+    @Parameters({
+            @Parameter(name = "status", description = "Фильтр по статусу карты (ACTIVE, BLOCKED, EXPIRED)", in = ParameterIn.QUERY, schema = @Schema(implementation = CardStatus.class)),
+            @Parameter(name = "ownerEmail", description = "Фильтр по email владельца", in = ParameterIn.QUERY, schema = @Schema(type = "string")),
+            @Parameter(name = "minBalance", description = "Фильтр по минимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double")),
+            @Parameter(name = "maxBalance", description = "Фильтр по максимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double")),
+            @Parameter(name = "format", description = "Формат выгрузки: CSV (по умолчанию) или NDJSON", in = ParameterIn.QUERY, schema = @Schema(implementation = CardExportFormat.class))
+    })
+    @ApiResponse(responseCode = "200", description = "Выгрузка передается в теле ответа")
+    @ApiResponse(responseCode = "401", description = "Неавторизован")
+    @ApiResponse(responseCode = "403", description = "Доступ запрещен (не админ)")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCards(
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) String ownerEmail,
+            @RequestParam(required = false) BigDecimal minBalance,
+            @RequestParam(required = false) BigDecimal maxBalance,
+            @RequestParam(defaultValue = "CSV") CardExportFormat format);
 
     @GetMapping("/{id}")
     @Operation(summary = "Получить карту по ID", description = "Возвращает детали конкретной карты.")
@@ -77,6 +116,16 @@ public interface AdminCardController {
     @ApiResponse(responseCode = "409", description = "Конфликт операции (например, попытка активировать истекшую карту)")
     public ResponseEntity<CardDto> updateCardStatus(@PathVariable UUID id, @Valid @RequestBody UpdateCardStatusRequest request);
 
+    @PutMapping("/{id}/balance-shards")
+    @Operation(summary = "Настроить суббалансы карты", description = "Распределяет зачисления на карту по N суббалансам, чтобы частые параллельные зачисления " +
+            "не ждали блокировку одной строки. 0 выключает режим; накопленные суббалансы сворачиваются в основной баланс.")
+    @ApiResponse(responseCode = "200", description = "Суббалансы настроены", content = @Content(schema = @Schema(implementation = CardDto.class)))
+    @ApiResponse(responseCode = "400", description = "Недопустимое число суббалансов")
+    @ApiResponse(responseCode = "401", description = "Неавторизован")
+    @ApiResponse(responseCode = "403", description = "Доступ запрещен")
+    @ApiResponse(responseCode = "404", description = "Карта не найдена")
+    public ResponseEntity<CardDto> updateBalanceShards(@PathVariable UUID id, @Valid @RequestBody UpdateBalanceShardsRequest request);
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Удалить карту", description = "Безвозвратно удаляет карту из системы.")
     @ApiResponse(responseCode = "204", description = "Карта успешно удалена")
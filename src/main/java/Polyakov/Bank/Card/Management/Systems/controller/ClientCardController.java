@@ -1,9 +1,14 @@
 package Polyakov.Bank.Card.Management.Systems.controller;
 
 import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
 import Polyakov.Bank.Card.Management.Systems.model.dto.BalanceDto;
 import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.TransferHistoryEntryDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.BatchTransferRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BatchTransferResponse;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.CursorPagedResponse;
 import Polyakov.Bank.Card.Management.Systems.model.dto.response.PagedResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -40,14 +45,18 @@ public interface ClientCardController {
             @Parameter(name = "sort", description = "Сортировка (например, 'balance,desc')", in = ParameterIn.QUERY, schema = @Schema(type = "string")),
             @Parameter(name = "status", description = "Фильтр по статусу карты (ACTIVE, BLOCKED, EXPIRED)", in = ParameterIn.QUERY, schema = @Schema(implementation = CardStatus.class)),
             @Parameter(name = "minBalance", description = "Фильтр по минимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double")),
-            @Parameter(name = "maxBalance", description = "Фильтр по максимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double"))
+            @Parameter(name = "maxBalance", description = "Фильтр по максимальному балансу", in = ParameterIn.QUERY, schema = @Schema(type = "number", format = "double")),
+            @Parameter(name = "cursor", description = "Курсор следующей страницы (nextCursor из предыдущего ответа); задает сортировку, page и sort игнорируются", in = ParameterIn.QUERY, schema = @Schema(type = "string")),
+            @Parameter(name = "total", description = "Общее количество: EXACT (COUNT, по умолчанию), ESTIMATE (оценка планировщика) или NONE (без подсчета)", in = ParameterIn.QUERY, schema = @Schema(implementation = PageTotalMode.class))
     })
     @ApiResponse(responseCode = "200", description = "Список карт пользователя получен")
     public ResponseEntity<PagedResponse<CardDto>> getCurrentUserCardsFiltered(
             @RequestParam(required = false) CardStatus status,
             @RequestParam(required = false) BigDecimal minBalance,
             @RequestParam(required = false) BigDecimal maxBalance,
-            @ParameterObject @PageableDefault(size = 10, sort = "id") Pageable pageable);
+            @ParameterObject @PageableDefault(size = 10, sort = "id") Pageable pageable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "total", required = false) PageTotalMode totalMode);
 
     @GetMapping("/{id}")
     @Operation(summary = "Получить свою карту по ID", description = "Возвращает детали конкретной карты, если она принадлежит текущему пользователю.")
@@ -67,14 +76,42 @@ public interface ClientCardController {
     public ResponseEntity<CardDto> requestBlockCard(@PathVariable UUID id);
 
     @PostMapping("/transfer")
-    @Operation(summary = "Перевести средства", description = "Выполняет перевод средств между двумя картами текущего пользователя.")
+    @Operation(summary = "Перевести средства", description = "Выполняет перевод средств между двумя картами текущего пользователя. " +
+            "Повтор запроса с тем же заголовком Idempotency-Key не выполняет перевод повторно.")
     @ApiResponse(responseCode = "200", description = "Перевод выполнен успешно") // Успешный перевод - 200 OK, т.к. нет возвращаемого ресурса
     @ApiResponse(responseCode = "400", description = "Неверный запрос (недостаточно средств, карты не активны, некорректные ID)")
     @ApiResponse(responseCode = "401", description = "Неавторизован")
     @ApiResponse(responseCode = "403", description = "Доступ запрещен")
     @ApiResponse(responseCode = "404", description = "Одна из карт не найдена или не принадлежит пользователю")
     @ApiResponse(responseCode = "409", description = "Конфликт операции (карты не активны)")
-    public ResponseEntity<Void> transferFunds(@Valid @RequestBody TransferRequest request);
+    public ResponseEntity<Void> transferFunds(
+            @Valid @RequestBody TransferRequest request,
+            @Parameter(description = "Ключ идемпотентности (до 255 символов), уникальный для каждого нового перевода")
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey);
+
+    @PostMapping("/transfer/batch")
+    @Operation(summary = "Выполнить пакет переводов", description = "Выполняет до 1000 переводов между картами текущего пользователя в одной транзакции. " +
+            "Режим PER_ITEM выполняет успешные переводы и пропускает ошибочные, ALL_OR_NOTHING отменяет весь пакет при любой ошибке.")
+    @ApiResponse(responseCode = "200", description = "Пакет обработан, результат по каждому переводу в ответе", content = @Content(schema = @Schema(implementation = BatchTransferResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Неверный запрос (пустой пакет, превышен лимит, некорректные элементы)")
+    @ApiResponse(responseCode = "401", description = "Неавторизован")
+    @ApiResponse(responseCode = "403", description = "Доступ запрещен")
+    public ResponseEntity<BatchTransferResponse> transferFundsBatch(@Valid @RequestBody BatchTransferRequest request);
+
+    @GetMapping("/{id}/transfers")
+    @Operation(summary = "Получить историю переводов по карте", description = "Возвращает движения средств по карте текущего пользователя от новых к старым. " +
+            "Следующая страница запрашивается с курсором nextCursor из предыдущего ответа.")
+    @ApiResponse(responseCode = "200", description = "История получена")
+    @ApiResponse(responseCode = "400", description = "Неверный курсор или размер страницы")
+    @ApiResponse(responseCode = "401", description = "Неавторизован")
+    @ApiResponse(responseCode = "403", description = "Доступ запрещен")
+    @ApiResponse(responseCode = "404", description = "Карта не найдена или не принадлежит пользователю")
+    public ResponseEntity<CursorPagedResponse<TransferHistoryEntryDto>> getCardHistory(
+            @PathVariable UUID id,
+            @Parameter(description = "Курсор следующей страницы (nextCursor из предыдущего ответа)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Количество записей на странице (1-100)")
+            @RequestParam(defaultValue = "20") int size);
 
     @GetMapping("/{id}/balance")
     @Operation(summary = "Получить баланс карты", description = "Возвращает баланс конкретной карты пользователя.")
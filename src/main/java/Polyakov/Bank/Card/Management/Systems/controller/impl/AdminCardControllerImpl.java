@@ -1,20 +1,32 @@
 package Polyakov.Bank.Card.Management.Systems.controller.impl;
 
 import Polyakov.Bank.Card.Management.Systems.controller.AdminCardController;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardExportFormat;
 import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
 import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.BulkCreateCardsRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.CreateCardRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.UpdateBalanceShardsRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.UpdateCardStatusRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BulkCreateCardsResponse;
 import Polyakov.Bank.Card.Management.Systems.model.dto.response.PagedResponse;
+import Polyakov.Bank.Card.Management.Systems.service.BulkCardIssuanceService;
+import Polyakov.Bank.Card.Management.Systems.service.CardExportService;
 import Polyakov.Bank.Card.Management.Systems.service.CardService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.UUID;
 
 @RestController
@@ -22,6 +34,8 @@ import java.util.UUID;
 public class AdminCardControllerImpl implements AdminCardController {
 
     private final CardService cardService;
+    private final BulkCardIssuanceService bulkCardIssuanceService;
+    private final CardExportService cardExportService;
 
     @Override
     public ResponseEntity<CardDto> createCard(CreateCardRequest request) {
@@ -29,19 +43,47 @@ public class AdminCardControllerImpl implements AdminCardController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdCard);
     }
 
+    @Override
+    public ResponseEntity<BulkCreateCardsResponse> createCardsBulk(BulkCreateCardsRequest request) {
+        BulkCreateCardsResponse response = bulkCardIssuanceService.createCards(request.getCards());
+        return ResponseEntity.ok(response);
+    }
+
     @Override
     public ResponseEntity<PagedResponse<CardDto>> getAllCardsFiltered(
             CardStatus status,
             String ownerEmail,
             BigDecimal minBalance,
             BigDecimal maxBalance,
-            Pageable pageable) {
+            Pageable pageable,
+            String cursor,
+            PageTotalMode totalMode) {
 
-        Page<CardDto> cardsPage = cardService.getAllCardsFiltered(status, ownerEmail, minBalance, maxBalance, pageable);
-        PagedResponse<CardDto> response = PagedResponse.fromPage(cardsPage);
+        PagedResponse<CardDto> response = cardService.getAllCardsFiltered(status, ownerEmail, minBalance, maxBalance, pageable, cursor, totalMode);
         return ResponseEntity.ok(response);
     }
 
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportCards(
+            CardStatus status,
+            String ownerEmail,
+            BigDecimal minBalance,
+            BigDecimal maxBalance,
+            CardExportFormat format) {
+
+        StreamingResponseBody body = out -> cardExportService.exportCards(status, ownerEmail, minBalance, maxBalance, format, out);
+        MediaType mediaType = format == CardExportFormat.NDJSON
+                ? MediaType.APPLICATION_NDJSON
+                : new MediaType("text", "csv", StandardCharsets.UTF_8);
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("cards." + format.name().toLowerCase(Locale.ROOT))
+                .build();
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+
     @Override
     public ResponseEntity<CardDto> getCardById(UUID id) {
         CardDto card = cardService.getCardByIdAsAdmin(id);
@@ -57,6 +99,12 @@ public class AdminCardControllerImpl implements AdminCardController {
         return ResponseEntity.ok(updatedCard);
     }
 
+    @Override
+    public ResponseEntity<CardDto> updateBalanceShards(UUID id, UpdateBalanceShardsRequest request) {
+        CardDto updatedCard = cardService.updateBalanceShardsAsAdmin(id, request.getShards());
+        return ResponseEntity.ok(updatedCard);
+    }
+
     @Override
     public ResponseEntity<Void> deleteCard(UUID id) {
         cardService.deleteCardAsAdmin(id);
@@ -2,20 +2,26 @@ package Polyakov.Bank.Card.Management.Systems.controller.impl;
 
 import Polyakov.Bank.Card.Management.Systems.controller.ClientCardController;
 import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
 import Polyakov.Bank.Card.Management.Systems.model.dto.BalanceDto;
 import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.TransferHistoryEntryDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.BatchTransferRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BatchTransferResponse;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.CursorPagedResponse;
 import Polyakov.Bank.Card.Management.Systems.model.dto.response.PagedResponse;
+import Polyakov.Bank.Card.Management.Systems.service.BatchTransferService;
 import Polyakov.Bank.Card.Management.Systems.service.CardService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -27,16 +33,18 @@ import java.util.UUID;
 public class ClientCardControllerImpl implements ClientCardController {
 
     private final CardService cardService;
+    private final BatchTransferService batchTransferService;
 
     @Override
     public ResponseEntity<PagedResponse<CardDto>> getCurrentUserCardsFiltered(
             @RequestParam(required = false) CardStatus status,
             @RequestParam(required = false) BigDecimal minBalance,
             @RequestParam(required = false) BigDecimal maxBalance,
-            @ParameterObject @PageableDefault(size = 10, sort = "id") Pageable pageable) {
+            @ParameterObject @PageableDefault(size = 10, sort = "id") Pageable pageable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "total", required = false) PageTotalMode totalMode) {
 
-        Page<CardDto> cardsPage = cardService.getCurrentUserCardsFiltered(status, minBalance, maxBalance, pageable);
-        PagedResponse<CardDto> response = PagedResponse.fromPage(cardsPage);
+        PagedResponse<CardDto> response = cardService.getCurrentUserCardsFiltered(status, minBalance, maxBalance, pageable, cursor, totalMode);
         return ResponseEntity.ok(response);
     }
 
@@ -53,11 +61,28 @@ public class ClientCardControllerImpl implements ClientCardController {
     }
 
     @Override
-    public ResponseEntity<Void> transferFunds(@Valid @RequestBody TransferRequest request) {
-        cardService.transferFunds(request);
+    public ResponseEntity<Void> transferFunds(
+            @Valid @RequestBody TransferRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        cardService.transferFunds(request, idempotencyKey);
         return ResponseEntity.ok().build();
     }
 
+    @Override
+    public ResponseEntity<BatchTransferResponse> transferFundsBatch(@Valid @RequestBody BatchTransferRequest request) {
+        BatchTransferResponse response = batchTransferService.transferFunds(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @Override
+    public ResponseEntity<CursorPagedResponse<TransferHistoryEntryDto>> getCardHistory(
+            @PathVariable UUID id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPagedResponse<TransferHistoryEntryDto> history = cardService.getCurrentUserCardHistory(id, cursor, size);
+        return ResponseEntity.ok(history);
+    }
+
     @Override
     public ResponseEntity<BalanceDto> getCardBalance(@PathVariable UUID id) {
         BalanceDto balance = cardService.getCurrentUserCardBalance(id);
@@ -1,41 +1,75 @@
 package Polyakov.Bank.Card.Management.Systems.converter;
 
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardNumberStorageFormat;
 import Polyakov.Bank.Card.Management.Systems.service.EncryptionService;
-import jakarta.persistence.AttributeConverter;
-import jakarta.persistence.Converter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.ENCRYPTION_HAS_NOT_BEEN_INJECTED_INTO_CARD_NUMBER_CONVERTER;
 
-@Converter
+/**
+ * Преобразует номер карты между открытым и хранимым (зашифрованным) видом.
+ * Сущности не управляются Spring, поэтому EncryptionService доступен им через статическое поле.
+ * Вызывается из {@link Polyakov.Bank.Card.Management.Systems.model.entity.Card} лениво,
+ * а не при каждой загрузке строки, как это делал бы JPA AttributeConverter.
+ */
 @Component
-public class CardNumberConverter implements AttributeConverter<String, String> {
+public class CardNumberConverter {
 
     private static EncryptionService encryptionService;
+    private static CardNumberStorageFormat storageFormat = CardNumberStorageFormat.BINARY;
 
     @Autowired
     public void setEncryptionService(@Lazy EncryptionService service) {
         CardNumberConverter.encryptionService = service;
     }
 
-    @Override
-    public String convertToDatabaseColumn(String attribute) {
-        if (attribute == null || encryptionService == null) {
+    @Autowired
+    public void setStorageFormat(@Value("${app.encryption.storage-format:BINARY}") CardNumberStorageFormat format) {
+        CardNumberConverter.storageFormat = format;
+    }
+
+    /**
+     * @return Формат, в котором записываются новые зашифрованные номера.
+     */
+    public static CardNumberStorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+
+    public static String encrypt(String cardNumber) {
+        if (cardNumber == null) {
             return null;
         }
-        return encryptionService.encrypt(attribute);
+        return requireEncryptionService().encrypt(cardNumber);
     }
 
-    @Override
-    public String convertToEntityAttribute(String dbData) {
-        if (dbData == null) {
+    public static String decrypt(String encryptedCardNumber) {
+        if (encryptedCardNumber == null) {
             return null;
         }
+        return requireEncryptionService().decrypt(encryptedCardNumber);
+    }
+
+    public static byte[] encryptToBytes(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        return requireEncryptionService().encryptToBytes(cardNumber);
+    }
+
+    public static String decryptFromBytes(byte[] encryptedCardNumber) {
+        if (encryptedCardNumber == null) {
+            return null;
+        }
+        return requireEncryptionService().decryptFromBytes(encryptedCardNumber);
+    }
+
+    private static EncryptionService requireEncryptionService() {
         if (encryptionService == null) {
             throw new IllegalStateException(ENCRYPTION_HAS_NOT_BEEN_INJECTED_INTO_CARD_NUMBER_CONVERTER);
         }
-        return encryptionService.decrypt(dbData);
+        return encryptionService;
     }
 }
@@ -0,0 +1,11 @@
+package Polyakov.Bank.Card.Management.Systems.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE) // Статус 503: очередь переводов переполнена, запрос можно повторить
+public class TransferPipelineUnavailableException extends RuntimeException {
+    public TransferPipelineUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,7 @@ import Polyakov.Bank.Card.Management.Systems.exception.*;
 import Polyakov.Bank.Card.Management.Systems.model.dto.response.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -32,8 +33,9 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
-    // Обработчик для BadRequestException, CardOperationException, InsufficientFundsException
-    @ExceptionHandler({BadRequestException.class, CardOperationException.class, InsufficientFundsException.class})
+    // Обработчик для BadRequestException, CardOperationException, InsufficientFundsException, TransferPipelineUnavailableException
+    @ExceptionHandler({BadRequestException.class, CardOperationException.class, InsufficientFundsException.class,
+            TransferPipelineUnavailableException.class})
     public ResponseEntity<ErrorResponse> handleBadRequestAndOperationExceptions(RuntimeException ex, HttpServletRequest request) {
         HttpStatus status = HttpStatus.BAD_REQUEST;
         ResponseStatus responseStatus = ex.getClass().getAnnotation(ResponseStatus.class);
@@ -103,6 +105,21 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, status);
     }
 
+    // Конфликт параллельных изменений, не разрешившийся повторами (RetryOnTransientFailure)
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ErrorResponse> handleConcurrencyFailureException(ConcurrencyFailureException ex, HttpServletRequest request) {
+        log.warn("Concurrent modification conflict at path {}: {}", request.getRequestURI(), ex.getMessage());
+        HttpStatus status = HttpStatus.CONFLICT;
+
+        ErrorResponse errorResponse = new ErrorResponse(
+                status.value(),
+                status.getReasonPhrase(),
+                "The resource was modified concurrently. Please retry the request.",
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(errorResponse, status);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGlobalException(Exception ex, HttpServletRequest request) {
         log.error("An unexpected error occurred at path {}: {}", request.getRequestURI(), ex.getMessage(), ex);
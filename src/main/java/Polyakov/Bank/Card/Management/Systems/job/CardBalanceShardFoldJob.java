@@ -0,0 +1,52 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.repository.CardBalanceShardRepository;
+import Polyakov.Bank.Card.Management.Systems.service.BalanceShardService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Периодически сворачивает суббалансы карт в основной баланс, чтобы основной баланс (фильтры, списания)
+ * отставал от полного не дольше интервала свертки. Каждая карта сворачивается в отдельной короткой транзакции.
+ */
+@Component
+@Slf4j
+public class CardBalanceShardFoldJob {
+
+    private final CardBalanceShardRepository shardRepository;
+    private final BalanceShardService balanceShardService;
+    private final int cardsPerRun;
+
+    public CardBalanceShardFoldJob(CardBalanceShardRepository shardRepository,
+                                   BalanceShardService balanceShardService,
+                                   @Value("${app.balance-shards.fold.cards-per-run:500}") int cardsPerRun) {
+        this.shardRepository = shardRepository;
+        this.balanceShardService = balanceShardService;
+        this.cardsPerRun = cardsPerRun;
+    }
+
+    @Scheduled(initialDelayString = "${app.balance-shards.fold.initial-delay-ms:10000}",
+            fixedDelayString = "${app.balance-shards.fold.interval-ms:5000}")
+    public void run() {
+        List<UUID> cardIds;
+        try {
+            cardIds = shardRepository.findCardIdsWithPendingBalance(cardsPerRun);
+        } catch (RuntimeException e) {
+            log.error("Balance shard fold failed", e);
+            return;
+        }
+        for (UUID cardId : cardIds) {
+            try {
+                balanceShardService.foldShards(cardId);
+            } catch (RuntimeException e) {
+                // Карта занята (например, долгий перевод): свертка повторится на следующем запуске
+                log.warn("Balance shard fold for card ID: {} failed, it will be retried", cardId, e);
+            }
+        }
+    }
+}
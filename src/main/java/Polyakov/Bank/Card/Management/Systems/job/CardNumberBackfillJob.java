@@ -0,0 +1,79 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.service.BlindIndexService;
+import Polyakov.Bank.Card.Management.Systems.util.CardMaskingUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Заполняет производные от номера карты колонки (слепой индекс card_number_hash и последние 4 цифры
+ * card_number_last4) для карт, созданных до их появления.
+ * Работает порциями, каждая порция в отдельной короткой транзакции. Уже обработанные карты
+ * выпадают из выборки, поэтому после перезапуска заполнение продолжается с места остановки.
+ */
+@Component
+@Slf4j
+public class CardNumberBackfillJob implements ApplicationRunner {
+
+    private final CardRepository cardRepository;
+    private final BlindIndexService blindIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public CardNumberBackfillJob(CardRepository cardRepository,
+                                 BlindIndexService blindIndexService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.card-number.backfill.enabled:true}") boolean enabled,
+                                 @Value("${app.card-number.backfill.chunk-size:500}") int chunkSize) {
+        this.cardRepository = cardRepository;
+        this.blindIndexService = blindIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long total = 0;
+        try {
+            int processed;
+            do {
+                processed = transactionTemplate.execute(status -> backfillChunk());
+                total += processed;
+                if (processed > 0) {
+                    log.info("Card number backfill: {} cards processed so far", total);
+                }
+            } while (processed == chunkSize);
+        } catch (RuntimeException e) {
+            log.error("Card number backfill stopped after {} cards", total, e);
+            return;
+        }
+        if (total > 0) {
+            log.info("Card number backfill finished, {} cards updated", total);
+        }
+    }
+
+    private int backfillChunk() {
+        List<Card> cards = cardRepository.findCardsWithoutDerivedNumberColumns(PageRequest.of(0, chunkSize));
+        for (Card card : cards) {
+            String cardNumber = card.getCardNumber();
+            card.setCardNumberHash(blindIndexService.hash(cardNumber));
+            card.setCardNumberLastFour(CardMaskingUtil.lastFourDigits(cardNumber));
+        }
+        return cards.size();
+    }
+}
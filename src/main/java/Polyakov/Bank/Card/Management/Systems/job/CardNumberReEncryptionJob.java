@@ -0,0 +1,156 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.model.entity.KeyRotationProgress;
+import Polyakov.Bank.Card.Management.Systems.repository.CardNumberReservationRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.KeyRotationProgressRepository;
+import Polyakov.Bank.Card.Management.Systems.service.EncryptionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Перешифровывает номера карт активным ключом после его смены (ротации).
+ * <p>
+ * Карты обходятся порциями по возрастанию id (keyset-пагинация), каждая порция обрабатывается в отдельной короткой
+ * транзакции: в памяти одновременно не больше одной порции, а строки блокируются только на время ее обработки.
+ * Позиция обхода сохраняется в key_rotation_progress в той же транзакции, что и сама порция, поэтому после перезапуска
+ * обход продолжается с последней зафиксированной порции. Скорость ограничивается параметром max-cards-per-second.
+ * Попутно номера переводятся в настроенный формат хранения (app.encryption.storage-format).
+ */
+@Component
+@Slf4j
+public class CardNumberReEncryptionJob {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private final CardRepository cardRepository;
+    private final KeyRotationProgressRepository progressRepository;
+    private final CardNumberReservationRepository reservationRepository;
+    private final EncryptionService encryptionService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int maxCardsPerSecond;
+
+    public CardNumberReEncryptionJob(CardRepository cardRepository,
+                                     KeyRotationProgressRepository progressRepository,
+                                     CardNumberReservationRepository reservationRepository,
+                                     EncryptionService encryptionService,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.encryption.rotation.enabled:true}") boolean enabled,
+                                     @Value("${app.encryption.rotation.chunk-size:200}") int chunkSize,
+                                     @Value("${app.encryption.rotation.max-cards-per-second:1000}") int maxCardsPerSecond) {
+        this.cardRepository = cardRepository;
+        this.progressRepository = progressRepository;
+        this.reservationRepository = reservationRepository;
+        this.encryptionService = encryptionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.maxCardsPerSecond = maxCardsPerSecond;
+    }
+
+    /**
+     * Проверяет, завершено ли перешифрование на активный ключ, и при необходимости продолжает его.
+     */
+    @Scheduled(initialDelayString = "${app.encryption.rotation.initial-delay-ms:30000}",
+            fixedDelayString = "${app.encryption.rotation.check-interval-ms:600000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        int keyVersion = encryptionService.getActiveKeyVersion();
+        try {
+            if (!startIfAbsent(keyVersion)) {
+                return;
+            }
+            long total = cardRepository.count();
+            log.info("Card number re-encryption to key version {} started or resumed ({} cards in total)", keyVersion, total);
+            KeyRotationProgress progress;
+            do {
+                long chunkStart = System.nanoTime();
+                progress = transactionTemplate.execute(status -> reEncryptChunk(keyVersion));
+                log.info("Card number re-encryption to key version {}: {} of ~{} cards processed",
+                        keyVersion, progress.getProcessedCount(), total);
+                throttle(chunkStart);
+            } while (progress.getCompletedAt() == null);
+            log.info("Card number re-encryption to key version {} finished, {} cards processed. Retired keys can be removed.",
+                    keyVersion, progress.getProcessedCount());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Card number re-encryption to key version {} stopped, it will resume on the next run", keyVersion, e);
+        }
+    }
+
+    /**
+     * Создает запись о перешифровании на указанную версию ключа, если ее еще нет.
+     *
+     * @return true, если перешифрование на эту версию еще не завершено.
+     */
+    private boolean startIfAbsent(int keyVersion) {
+        KeyRotationProgress progress = progressRepository.findById(keyVersion).orElse(null);
+        if (progress == null) {
+            try {
+                progress = progressRepository.saveAndFlush(new KeyRotationProgress(keyVersion, Instant.now()));
+            } catch (DataIntegrityViolationException e) {
+                // Запись одновременно создал другой экземпляр приложения
+                progress = progressRepository.findById(keyVersion).orElseThrow();
+            }
+        }
+        return progress.getCompletedAt() == null;
+    }
+
+    private KeyRotationProgress reEncryptChunk(int keyVersion) {
+        KeyRotationProgress progress = progressRepository.findForUpdate(keyVersion).orElseThrow();
+        if (progress.getCompletedAt() != null) {
+            return progress;
+        }
+        UUID afterId = progress.getLastCardId() != null ? progress.getLastCardId() : MIN_UUID;
+        List<Card> cards = cardRepository.findChunkAfterForUpdate(afterId, PageRequest.of(0, chunkSize));
+        for (Card card : cards) {
+            // Повторная установка номера шифрует его активным ключом в текущем формате хранения
+            card.setCardNumber(card.getCardNumber());
+        }
+        Instant now = Instant.now();
+        if (!cards.isEmpty()) {
+            progress.setLastCardId(cards.get(cards.size() - 1).getId());
+            progress.setProcessedCount(progress.getProcessedCount() + cards.size());
+        }
+        if (cards.size() < chunkSize) {
+            progress.setCompletedAt(now);
+            // Резервы пула, зашифрованные до начала ротации, выбрасываются: пул пополнится номерами под новым ключом
+            int discarded = reservationRepository.deleteCreatedBefore(progress.getStartedAt());
+            if (discarded > 0) {
+                log.info("Discarded {} card number reservations encrypted before key version {}", discarded, keyVersion);
+            }
+        }
+        progress.setUpdatedAt(now);
+        return progress;
+    }
+
+    /**
+     * Выдерживает паузу так, чтобы средняя скорость не превышала max-cards-per-second.
+     */
+    private void throttle(long chunkStartNanos) throws InterruptedException {
+        if (maxCardsPerSecond <= 0) {
+            return;
+        }
+        long minChunkMillis = chunkSize * 1000L / maxCardsPerSecond;
+        long elapsedMillis = (System.nanoTime() - chunkStartNanos) / 1_000_000;
+        if (elapsedMillis < minChunkMillis) {
+            Thread.sleep(minChunkMillis - elapsedMillis);
+        }
+    }
+}
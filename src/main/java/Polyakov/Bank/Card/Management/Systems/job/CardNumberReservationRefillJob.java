@@ -0,0 +1,28 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.service.CardNumberReservationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически пополняет пул зарезервированных номеров карт, когда он опускается ниже нижней границы.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CardNumberReservationRefillJob {
+
+    private final CardNumberReservationService reservationService;
+
+    @Scheduled(initialDelayString = "${app.card-number.reservation.initial-delay-ms:10000}",
+            fixedDelayString = "${app.card-number.reservation.check-interval-ms:5000}")
+    public void run() {
+        try {
+            reservationService.refillIfNeeded();
+        } catch (RuntimeException e) {
+            log.error("Card number reservation refill failed", e);
+        }
+    }
+}
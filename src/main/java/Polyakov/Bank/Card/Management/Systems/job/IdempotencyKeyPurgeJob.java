@@ -0,0 +1,31 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.service.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически удаляет просроченные ключи идемпотентности порциями.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyKeyPurgeJob {
+
+    private final IdempotencyService idempotencyService;
+
+    @Scheduled(initialDelayString = "${app.idempotency.purge.initial-delay-ms:60000}",
+            fixedDelayString = "${app.idempotency.purge.interval-ms:600000}")
+    public void run() {
+        try {
+            int purged = idempotencyService.purgeExpired();
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency keys", purged);
+            }
+        } catch (RuntimeException e) {
+            log.error("Idempotency key purge failed", e);
+        }
+    }
+}
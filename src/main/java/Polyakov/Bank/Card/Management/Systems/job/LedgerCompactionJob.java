@@ -0,0 +1,103 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.LedgerCompactionState;
+import Polyakov.Bank.Card.Management.Systems.model.entity.LedgerEntry;
+import Polyakov.Bank.Card.Management.Systems.repository.CardBalanceSnapshotRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.LedgerCompactionStateRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.LedgerEntryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+/**
+ * Сворачивает записи журнала в снимки балансов карт (card_balance_snapshots).
+ * <p>
+ * Записи обходятся порциями в порядке (created_at, id) начиная с позиции из ledger_compaction_state; каждая порция
+ * складывается в снимки одним оператором и фиксируется вместе с новой позицией в отдельной короткой транзакции.
+ * created_at записи — время начала ее транзакции, а не фиксации, поэтому позиция не переходит начало самой старой
+ * открытой транзакции базы (см. {@link LedgerEntryRepository#findCompactionHorizon(long)}): иначе запись долгой
+ * транзакции, зафиксированной позже, осталась бы позади позиции и не попала бы в снимки. Дополнительно сворачиваются
+ * только записи старше grace-period-ms. Журнал при этом не изменяется и не удаляется.
+ */
+@Component
+@Slf4j
+public class LedgerCompactionJob {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final CardBalanceSnapshotRepository snapshotRepository;
+    private final LedgerCompactionStateRepository stateRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final long gracePeriodSeconds;
+
+    public LedgerCompactionJob(LedgerEntryRepository ledgerEntryRepository,
+                               CardBalanceSnapshotRepository snapshotRepository,
+                               LedgerCompactionStateRepository stateRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.ledger.compaction.enabled:true}") boolean enabled,
+                               @Value("${app.ledger.compaction.chunk-size:5000}") int chunkSize,
+                               @Value("${app.ledger.compaction.grace-period-ms:60000}") long gracePeriodMs) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.stateRepository = stateRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.gracePeriodSeconds = Math.max(1, gracePeriodMs / 1000);
+    }
+
+    @Scheduled(initialDelayString = "${app.ledger.compaction.initial-delay-ms:60000}",
+            fixedDelayString = "${app.ledger.compaction.interval-ms:60000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long chunks = 0;
+            Boolean folded;
+            do {
+                folded = transactionTemplate.execute(status -> compactChunk());
+                if (Boolean.TRUE.equals(folded)) {
+                    chunks++;
+                }
+            } while (Boolean.TRUE.equals(folded));
+            if (chunks > 0) {
+                log.info("Ledger compaction folded {} chunk(s) of up to {} entries into balance snapshots", chunks, chunkSize);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ledger compaction stopped, it will resume on the next run", e);
+        }
+    }
+
+    /**
+     * Сворачивает одну порцию записей.
+     *
+     * @return true, если порция была и свернута; false, если сворачивать нечего.
+     */
+    private boolean compactChunk() {
+        LedgerCompactionState state = stateRepository.findForUpdate().orElseThrow();
+        // Граница читается отдельным оператором: снимок поиска порции уже видит записи всех транзакций до нее
+        Instant horizon = ledgerEntryRepository.findCompactionHorizon(gracePeriodSeconds);
+        Long chunkEndId = ledgerEntryRepository.findCompactionChunkEnd(
+                state.getLastCreatedAt(), state.getLastEntryId(), horizon, chunkSize).orElse(null);
+        if (chunkEndId == null) {
+            return false;
+        }
+        LedgerEntry chunkEnd = ledgerEntryRepository.findById(chunkEndId).orElseThrow();
+        int snapshots = snapshotRepository.foldEntries(state.getLastCreatedAt(), state.getLastEntryId(),
+                chunkEnd.getCreatedAt(), chunkEnd.getId());
+        log.debug("Ledger entries up to ({}, {}) folded into {} balance snapshots",
+                chunkEnd.getCreatedAt(), chunkEnd.getId(), snapshots);
+
+        state.setLastCreatedAt(chunkEnd.getCreatedAt());
+        state.setLastEntryId(chunkEnd.getId());
+        state.setUpdatedAt(Instant.now());
+        return true;
+    }
+}
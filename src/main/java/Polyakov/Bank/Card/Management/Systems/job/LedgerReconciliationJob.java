@@ -0,0 +1,76 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.repository.CardBalanceSnapshotRepository;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сверяет балансы карт с журналом движения средств (снимок + несвернутые записи).
+ * <p>
+ * Сверка выполняется одним читающим запросом в транзакции REPEATABLE READ: перевод меняет баланс и пишет журнал
+ * в одной транзакции, поэтому в согласованном снимке БД они всегда совпадают, и блокировки не нужны.
+ * Число найденных расхождений публикуется в метрике ledger.reconciliation.mismatches, каждое расхождение пишется в лог.
+ */
+@Component
+@Slf4j
+public class LedgerReconciliationJob {
+
+    private final CardBalanceSnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicInteger lastMismatchCount = new AtomicInteger();
+    private final boolean enabled;
+    private final int maxReportedMismatches;
+
+    public LedgerReconciliationJob(CardBalanceSnapshotRepository snapshotRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.ledger.reconciliation.enabled:true}") boolean enabled,
+                                   @Value("${app.ledger.reconciliation.max-reported-mismatches:100}") int maxReportedMismatches) {
+        this.snapshotRepository = snapshotRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxReportedMismatches = maxReportedMismatches;
+        Gauge.builder("ledger.reconciliation.mismatches", lastMismatchCount, AtomicInteger::get)
+                .description("Cards whose balance differed from the ledger on the last reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.ledger.reconciliation.initial-delay-ms:300000}",
+            fixedDelayString = "${app.ledger.reconciliation.interval-ms:3600000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Object[]> mismatches = transactionTemplate.execute(
+                    status -> snapshotRepository.findBalanceMismatches(maxReportedMismatches));
+            lastMismatchCount.set(mismatches.size());
+            if (mismatches.isEmpty()) {
+                log.info("Ledger reconciliation finished: card balances match the ledger");
+                return;
+            }
+            for (Object[] mismatch : mismatches) {
+                log.error("Ledger reconciliation mismatch for card {}: card balance {}, ledger balance {}",
+                        mismatch[0], MoneyUtil.toDecimal(((Number) mismatch[1]).longValue()),
+                        MoneyUtil.toDecimal(((Number) mismatch[2]).longValue()));
+            }
+            log.error("Ledger reconciliation found {}{} mismatching card(s)",
+                    mismatches.size(), mismatches.size() == maxReportedMismatches ? "+" : "");
+        } catch (RuntimeException e) {
+            log.error("Ledger reconciliation failed", e);
+        }
+    }
+}
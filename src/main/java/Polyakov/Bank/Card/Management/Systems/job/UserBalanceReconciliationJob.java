@@ -0,0 +1,87 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.repository.UserBalanceRepository;
+import Polyakov.Bank.Card.Management.Systems.service.UserBalanceService;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сверяет суммарные балансы пользователей (user_balances) с суммой балансов их карт.
+ * <p>
+ * Поиск расхождений — один читающий запрос в транзакции REPEATABLE READ: сумма и карты меняются в одной транзакции,
+ * поэтому в согласованном снимке они совпадают. Число расхождений публикуется в метрике user.balance.reconciliation.mismatches;
+ * при app.user-balance.reconciliation.repair найденные суммы пересчитываются по картам под блокировкой строки суммы.
+ */
+@Component
+@Slf4j
+public class UserBalanceReconciliationJob {
+
+    private final UserBalanceRepository userBalanceRepository;
+    private final UserBalanceService userBalanceService;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicInteger lastMismatchCount = new AtomicInteger();
+    private final boolean enabled;
+    private final boolean repair;
+    private final int maxReportedMismatches;
+
+    public UserBalanceReconciliationJob(UserBalanceRepository userBalanceRepository,
+                                        UserBalanceService userBalanceService,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${app.user-balance.reconciliation.enabled:true}") boolean enabled,
+                                        @Value("${app.user-balance.reconciliation.repair:true}") boolean repair,
+                                        @Value("${app.user-balance.reconciliation.max-reported-mismatches:100}") int maxReportedMismatches) {
+        this.userBalanceRepository = userBalanceRepository;
+        this.userBalanceService = userBalanceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.repair = repair;
+        this.maxReportedMismatches = maxReportedMismatches;
+        Gauge.builder("user.balance.reconciliation.mismatches", lastMismatchCount, AtomicInteger::get)
+                .description("Users whose stored total balance differed from their cards on the last reconciliation")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.user-balance.reconciliation.initial-delay-ms:300000}",
+            fixedDelayString = "${app.user-balance.reconciliation.interval-ms:3600000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Object[]> mismatches = transactionTemplate.execute(
+                    status -> userBalanceRepository.findTotalMismatches(maxReportedMismatches));
+            lastMismatchCount.set(mismatches.size());
+            if (mismatches.isEmpty()) {
+                log.info("User balance reconciliation finished: total balances match the cards");
+                return;
+            }
+            for (Object[] mismatch : mismatches) {
+                log.error("User balance reconciliation mismatch for user {}: stored total {}, card total {}",
+                        mismatch[0], MoneyUtil.toDecimal(((Number) mismatch[1]).longValue()),
+                        MoneyUtil.toDecimal(((Number) mismatch[2]).longValue()));
+                if (repair) {
+                    userBalanceService.recalculate((UUID) mismatch[0]);
+                }
+            }
+            log.error("User balance reconciliation found {}{} mismatching user(s){}", mismatches.size(),
+                    mismatches.size() == maxReportedMismatches ? "+" : "", repair ? ", totals recalculated" : "");
+        } catch (RuntimeException e) {
+            log.error("User balance reconciliation failed", e);
+        }
+    }
+}
@@ -3,22 +3,32 @@ package Polyakov.Bank.Card.Management.Systems.mapper;
 import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
 import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
 import Polyakov.Bank.Card.Management.Systems.util.CardMaskingUtil;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import org.mapstruct.ReportingPolicy;
 
-@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE,
-        componentModel = MappingConstants.ComponentModel.SPRING,
-        imports = {CardMaskingUtil.class})
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE, imports = MoneyUtil.class,
+        componentModel = MappingConstants.ComponentModel.SPRING)
 public interface CardMapper {
 
     @Mapping(source = "ownerEmail", target = "owner.email")
     @Mapping(target = "cardNumber", ignore = true)
+    @Mapping(target = "balance", expression = "java(cardDto.getBalance() != null ? MoneyUtil.toMinorUnits(cardDto.getBalance()) : 0)")
     Card toEntity(CardDto cardDto);
 
     @Mapping(source = "owner.email", target = "ownerEmail")
-    @Mapping(target = "maskedCardNumber",
-        expression = "java(CardMaskingUtil.maskCardNumber(card.getCardNumber()))")
+    @Mapping(target = "maskedCardNumber", expression = "java(maskCardNumber(card))")
+    @Mapping(target = "balance", expression = "java(MoneyUtil.toDecimal(card.getTotalBalance()))")
     CardDto toDto(Card card);
+
+    /**
+     * Маскированный номер строится по сохраненным последним 4 цифрам без расшифровки.
+     * Расшифровка нужна только для карт, которые CardNumberBackfillJob еще не обработал.
+     */
+    default String maskCardNumber(Card card) {
+        String lastFour = card.getCardNumberLastFour();
+        return CardMaskingUtil.maskCardNumber(lastFour != null ? lastFour : card.getCardNumber());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package Polyakov.Bank.Card.Management.Systems.model.constant;
+
+/**
+ * Семантика пакетного перевода: PER_ITEM — ошибочные переводы пропускаются, остальные выполняются;
+ * ALL_OR_NOTHING — любая ошибка отменяет весь пакет.
+ */
+public enum BatchTransferMode {
+
+    PER_ITEM, ALL_OR_NOTHING
+}
@@ -0,0 +1,9 @@
+package Polyakov.Bank.Card.Management.Systems.model.constant;
+
+/**
+ * Формат выгрузки карт: CSV — строка заголовка и по строке на карту; NDJSON — по JSON-объекту на строку.
+ */
+public enum CardExportFormat {
+
+    CSV, NDJSON
+}
@@ -0,0 +1,12 @@
+package Polyakov.Bank.Card.Management.Systems.model.constant;
+
+/**
+ * Формат хранения зашифрованного номера карты.
+ * Чтение поддерживает оба формата независимо от настройки; настройка определяет только формат записи.
+ */
+public enum CardNumberStorageFormat {
+    /** IV + шифротекст + тег в колонке card_number_bin (bytea). */
+    BINARY,
+    /** Base64 от IV + шифротекст + тег в текстовой колонке card_number (прежний формат). */
+    BASE64
+}
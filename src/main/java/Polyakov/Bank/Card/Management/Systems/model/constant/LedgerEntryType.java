@@ -0,0 +1,6 @@
+package Polyakov.Bank.Card.Management.Systems.model.constant;
+
+public enum LedgerEntryType {
+
+    OPENING_BALANCE, TRANSFER_DEBIT, TRANSFER_CREDIT
+}
@@ -0,0 +1,10 @@
+package Polyakov.Bank.Card.Management.Systems.model.constant;
+
+/**
+ * Общее количество элементов в ответе со списком: EXACT — точный подсчет отдельным COUNT(*);
+ * ESTIMATE — оценка планировщика PostgreSQL без подсчета; NONE — без общего количества, только признак следующей страницы.
+ */
+public enum PageTotalMode {
+
+    EXACT, ESTIMATE, NONE
+}
@@ -28,4 +28,7 @@ public class CardDto {
 
     @Schema(description = "Текущий баланс карты", example = "1000.50")
     private BigDecimal balance;
+
+    @Schema(description = "Число суббалансов для зачислений (0 — режим выключен)", example = "0")
+    private int balanceShards;
 }
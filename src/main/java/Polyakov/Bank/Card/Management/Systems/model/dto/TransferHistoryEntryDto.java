@@ -0,0 +1,33 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.LedgerEntryType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Запись истории движения средств по карте")
+public class TransferHistoryEntryDto {
+
+    @Schema(description = "Идентификатор перевода (пусто для начального баланса)")
+    private UUID transferId;
+
+    @Schema(description = "Тип записи (OPENING_BALANCE, TRANSFER_DEBIT, TRANSFER_CREDIT)")
+    private LedgerEntryType type;
+
+    @Schema(description = "Вторая карта перевода: получатель для списания, источник для зачисления")
+    private UUID counterpartyCardId;
+
+    @Schema(description = "Сумма со знаком: списание отрицательное, зачисление положительное", example = "-100.00")
+    private BigDecimal amount;
+
+    @Schema(description = "Время операции")
+    private Instant createdAt;
+}
@@ -0,0 +1,27 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.request;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.BatchTransferMode;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "Пакет переводов между картами одного пользователя")
+public class BatchTransferRequest {
+
+    // Элементы не валидируются здесь: ошибка в одном переводе отклонила бы весь пакет,
+    // поэтому каждый перевод проверяется в BatchTransferServiceImpl и получает свой результат
+    @NotEmpty(message = "Список переводов не может быть пустым")
+    @Size(max = 1000, message = "За один запрос можно выполнить не более 1000 переводов")
+    @Schema(description = "Переводы в порядке выполнения")
+    private List<TransferRequest> transfers;
+
+    @NotNull(message = "Режим пакета не может быть пустым")
+    @Schema(description = "PER_ITEM — выполнить успешные переводы, ALL_OR_NOTHING — отменить пакет при любой ошибке",
+            example = "PER_ITEM", defaultValue = "PER_ITEM")
+    private BatchTransferMode mode = BatchTransferMode.PER_ITEM;
+}
@@ -0,0 +1,19 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "Запрос на массовый выпуск карт (только Администратор)")
+public class BulkCreateCardsRequest {
+
+    @NotEmpty(message = "Список карт не может быть пустым")
+    @Size(max = 10000, message = "За один запрос можно выпустить не более 10000 карт")
+    @Schema(description = "Карты для выпуска: пары (ID пользователя, срок действия)")
+    private List<@Valid CreateCardRequest> cards;
+}
@@ -2,6 +2,7 @@ package Polyakov.Bank.Card.Management.Systems.model.dto.request;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
@@ -22,6 +23,7 @@ public class TransferRequest {
 
     @NotNull(message = "Сумма перевода не может быть пустой")
     @DecimalMin(value = "0.01", message = "Сумма перевода должна быть положительной")
+    @Digits(integer = 16, fraction = 2, message = "Сумма перевода: не более 16 цифр до запятой и 2 после")
     @Schema(description = "Сумма перевода", example = "100.00")
     private BigDecimal amount;
 }
@@ -0,0 +1,18 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+@Schema(description = "Запрос на настройку суббалансов карты")
+public class UpdateBalanceShardsRequest {
+
+    @NotNull(message = "Число суббалансов не может быть пустым")
+    @Min(value = 0, message = "Число суббалансов не может быть отрицательным")
+    @Max(value = 64, message = "Число суббалансов не может быть больше 64")
+    @Schema(description = "Число суббалансов для зачислений (0 — выключить режим)", example = "16")
+    private Integer shards;
+}
@@ -0,0 +1,31 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.response;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.BatchTransferMode;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Итог пакетного перевода")
+public class BatchTransferResponse {
+
+    @Schema(description = "Режим пакета", example = "PER_ITEM")
+    private BatchTransferMode mode;
+
+    @Schema(description = "Количество переводов в запросе", example = "100")
+    private int requested;
+
+    @Schema(description = "Количество выполненных переводов", example = "99")
+    private int succeeded;
+
+    @Schema(description = "Количество невыполненных переводов", example = "1")
+    private int failed;
+
+    @Schema(description = "Результаты по каждому переводу в порядке запроса")
+    private List<BatchTransferResult> results;
+}
@@ -0,0 +1,35 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат одного перевода в пакете")
+public class BatchTransferResult {
+
+    @Schema(description = "Позиция элемента в запросе (начиная с 0)", example = "0")
+    private int index;
+
+    @Schema(description = "Выполнен ли перевод", example = "true")
+    private boolean success;
+
+    @Schema(description = "Идентификатор перевода в журнале (только при успехе)")
+    private UUID transferId;
+
+    @Schema(description = "Причина ошибки (только при неудаче)", example = "Insufficient funds on source card ID: c1c299bf-8b3f-4ed6-a161-ff25dccb3d61")
+    private String error;
+
+    public static BatchTransferResult success(int index, UUID transferId) {
+        return new BatchTransferResult(index, true, transferId, null);
+    }
+
+    public static BatchTransferResult failure(int index, String error) {
+        return new BatchTransferResult(index, false, null, error);
+    }
+}
@@ -0,0 +1,39 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.response;
+
+import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Результат выпуска одной карты в массовом запросе")
+public class BulkCardResult {
+
+    @Schema(description = "Позиция элемента в запросе (начиная с 0)", example = "0")
+    private int index;
+
+    @Schema(description = "ID пользователя из запроса")
+    private UUID userId;
+
+    @Schema(description = "Выпущена ли карта", example = "true")
+    private boolean success;
+
+    @Schema(description = "Выпущенная карта (только при успехе)")
+    private CardDto card;
+
+    @Schema(description = "Причина ошибки (только при неудаче)", example = "User not found with id: c1c299bf-8b3f-4ed6-a161-ff25dccb3d61")
+    private String error;
+
+    public static BulkCardResult success(int index, UUID userId, CardDto card) {
+        return new BulkCardResult(index, userId, true, card, null);
+    }
+
+    public static BulkCardResult failure(int index, UUID userId, String error) {
+        return new BulkCardResult(index, userId, false, null, error);
+    }
+}
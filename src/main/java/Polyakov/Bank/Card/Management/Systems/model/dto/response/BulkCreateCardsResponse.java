@@ -0,0 +1,27 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Итог массового выпуска карт")
+public class BulkCreateCardsResponse {
+
+    @Schema(description = "Количество элементов в запросе", example = "1000")
+    private int requested;
+
+    @Schema(description = "Количество выпущенных карт", example = "998")
+    private int created;
+
+    @Schema(description = "Количество элементов с ошибкой", example = "2")
+    private int failed;
+
+    @Schema(description = "Результаты по каждому элементу в порядке запроса")
+    private List<BulkCardResult> results;
+}
@@ -0,0 +1,46 @@
+package Polyakov.Bank.Card.Management.Systems.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка с keyset-пагинацией: вместо номера страницы и общего количества элементов
+ * возвращается курсор следующей страницы, поэтому ни одна страница не требует OFFSET или COUNT.
+ * @param <T>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница списка с курсорной пагинацией")
+public class CursorPagedResponse<T> {
+
+    @Schema(description = "Содержимое текущей страницы")
+    private List<T> content;
+
+    @Schema(description = "Запрошенный размер страницы", example = "20")
+    private int pageSize;
+
+    @Schema(description = "Курсор следующей страницы (передается в параметре cursor); пусто, если страница последняя")
+    private String nextCursor;
+
+    @Schema(description = "Является ли текущая страница последней", example = "false")
+    private boolean last;
+
+    /**
+     * Собирает страницу из результата запроса, выбравшего на одну строку больше размера страницы:
+     * лишняя строка только показывает, что следующая страница существует.
+     *
+     * @param rows Строки запроса (не более pageSize + 1).
+     * @param nextCursor Курсор после последней строки страницы; вызывается, только если следующая страница есть.
+     */
+    public static <T> CursorPagedResponse<T> fromRows(List<T> rows, int pageSize, Function<T, String> nextCursor) {
+        boolean last = rows.size() <= pageSize;
+        List<T> content = last ? rows : rows.subList(0, pageSize);
+        return new CursorPagedResponse<>(content, pageSize, last ? null : nextCursor.apply(content.get(pageSize - 1)), last);
+    }
+}
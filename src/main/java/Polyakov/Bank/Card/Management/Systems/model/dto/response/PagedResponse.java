@@ -1,8 +1,10 @@
 package Polyakov.Bank.Card.Management.Systems.model.dto.response;
 
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -17,24 +19,32 @@ public class PagedResponse<T> {
     @Schema(description = "Содержимое текущей страницы")
     private List<T> content;
 
-    @Schema(description = "Номер текущей страницы (начиная с 0)", example = "0")
+    @Schema(description = "Номер текущей страницы (начиная с 0); -1 для страницы, запрошенной по курсору", example = "0")
     private int pageNumber;
 
     @Schema(description = "Размер страницы", example = "10")
     private int pageSize;
 
-    @Schema(description = "Общее количество элементов во всех страницах", example = "100")
+    @Schema(description = "Общее количество элементов во всех страницах (оценка в режиме ESTIMATE); " +
+            "-1 в режиме NONE и для страницы, запрошенной по курсору", example = "100")
     private long totalElements;
 
-    @Schema(description = "Общее количество страниц", example = "10")
+    @Schema(description = "Общее количество страниц (оценка в режиме ESTIMATE); -1 в режиме NONE и для страницы, запрошенной по курсору", example = "10")
     private int totalPages;
 
+    @Schema(description = "Как получено общее количество элементов: EXACT, ESTIMATE или NONE", example = "EXACT")
+    private PageTotalMode totalMode;
+
     @Schema(description = "Является ли текущая страница первой", example = "true")
     private boolean first;
 
     @Schema(description = "Является ли текущая страница последней", example = "false")
     private boolean last;
 
+    @Schema(description = "Курсор следующей страницы (параметр cursor): продолжает список без OFFSET. " +
+            "Пусто, если страница последняя или сортировка не поддерживает курсор")
+    private String nextCursor;
+
     public static <T> PagedResponse<T> fromPage(Page<T> page) {
         PagedResponse<T> response = new PagedResponse<>();
         response.setContent(page.getContent());
@@ -44,6 +54,58 @@ public class PagedResponse<T> {
         response.setTotalPages(page.getTotalPages());
         response.setFirst(page.isFirst());
         response.setLast(page.isLast());
+        response.setTotalMode(PageTotalMode.EXACT);
+        return response;
+    }
+
+    /**
+     * Страница без подсчета общего количества: о следующей странице известно по лишней выбранной строке.
+     */
+    public static <T> PagedResponse<T> fromSlice(Slice<T> slice) {
+        PagedResponse<T> response = new PagedResponse<>();
+        response.setContent(slice.getContent());
+        response.setPageNumber(slice.getNumber());
+        response.setPageSize(slice.getSize());
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setFirst(slice.isFirst());
+        response.setLast(slice.isLast());
+        response.setTotalMode(PageTotalMode.NONE);
+        return response;
+    }
+
+    /**
+     * Страница без подсчета с оценкой общего количества. Оценка не меньше уже известного минимума
+     * (элементы до текущей страницы, на ней и хотя бы один на следующей).
+     * Отрицательная оценка означает, что ее получить не удалось: страница возвращается без общего количества (NONE).
+     */
+    public static <T> PagedResponse<T> fromSlice(Slice<T> slice, long estimatedTotal) {
+        PagedResponse<T> response = fromSlice(slice);
+        if (estimatedTotal < 0) {
+            return response;
+        }
+        long knownMinimum = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        long total = Math.max(estimatedTotal, knownMinimum);
+        response.setTotalElements(total);
+        response.setTotalPages(slice.getSize() == 0 ? 1 : (int) Math.ceil((double) total / slice.getSize()));
+        response.setTotalMode(PageTotalMode.ESTIMATE);
+        return response;
+    }
+
+    /**
+     * Страница, запрошенная по курсору: общее количество элементов и номер страницы не вычисляются.
+     */
+    public static <T> PagedResponse<T> fromCursor(List<T> content, int pageSize, String nextCursor) {
+        PagedResponse<T> response = new PagedResponse<>();
+        response.setContent(content);
+        response.setPageNumber(-1);
+        response.setPageSize(pageSize);
+        response.setTotalElements(-1);
+        response.setTotalPages(-1);
+        response.setFirst(false);
+        response.setLast(nextCursor == null);
+        response.setNextCursor(nextCursor);
+        response.setTotalMode(PageTotalMode.NONE);
         return response;
     }
 }
@@ -1,14 +1,17 @@
 package Polyakov.Bank.Card.Management.Systems.model.entity;
 
 import Polyakov.Bank.Card.Management.Systems.converter.CardNumberConverter;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardNumberStorageFormat;
 import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Formula;
 
-import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -17,17 +20,49 @@ import java.util.UUID;
 @Getter
 @Setter
 @NoArgsConstructor
-@ToString(exclude = {"owner"})
+@ToString(exclude = {"owner", "encryptedCardNumber", "encryptedCardNumberBase64", "cardNumber", "cardNumberHash"})
 public class Card {
 
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(name = "card_number", nullable = false)
-    @Convert(converter = CardNumberConverter.class)
+    /**
+     * Зашифрованный номер карты в двоичном виде (IV + шифротекст + тег), колонка bytea.
+     * Hibernate читает и пишет поле напрямую, без обращения к AES.
+     */
+    @Column(name = "card_number_bin")
+    @Setter(AccessLevel.NONE)
+    private byte[] encryptedCardNumber;
+
+    /**
+     * Зашифрованный номер карты в прежнем формате Base64. Заполнен только у строк, еще не переведенных
+     * в двоичный формат, или если запись настроена в формате BASE64.
+     */
+    @Column(name = "card_number")
+    @Setter(AccessLevel.NONE)
+    private String encryptedCardNumberBase64;
+
+    /**
+     * Расшифрованный номер карты. Заполняется лениво при первом вызове {@link #getCardNumber()}.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
     private String cardNumber;
 
+    /**
+     * Слепой индекс номера карты (HMAC), используется для проверки уникальности и точного поиска без расшифровки.
+     */
+    @Column(name = "card_number_hash", unique = true)
+    private byte[] cardNumberHash;
+
+    /**
+     * Последние 4 цифры номера в открытом виде: достаточно для маскированного номера в ответах API.
+     */
+    @Column(name = "card_number_last4", length = 4)
+    private String cardNumberLastFour;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
@@ -39,19 +74,84 @@ public class Card {
     @Column(nullable = false, length = 50)
     private CardStatus status;
 
-    @Column(nullable = false, precision = 19, scale = 2)
-    private BigDecimal balance;
+    /**
+     * Основной баланс в минимальных единицах валюты (копейках), см. {@link MoneyUtil}.
+     */
+    @Column(name = "balance_minor", nullable = false)
+    private long balance;
+
+    /**
+     * Число суббалансов (card_balance_shards), по которым распределяются зачисления; 0 — режим выключен.
+     * Включается администратором для карт с очень частыми зачислениями: зачисление меняет случайный суббаланс,
+     * а не строку карты, поэтому параллельные зачисления не ждут одну блокировку.
+     */
+    @Column(name = "balance_shards", nullable = false)
+    private int balanceShards;
+
+    /**
+     * Сумма суббалансов, еще не свернутых в {@link #balance}. Подзапрос выполняется только для карт с включенными суббалансами.
+     */
+    @Formula("(CASE WHEN balance_shards > 0 THEN " +
+            "(SELECT COALESCE(SUM(s.balance_minor), 0) FROM card_balance_shards s WHERE s.card_id = id) ELSE 0 END)")
+    @Setter(AccessLevel.NONE)
+    private Long shardedBalance;
+
+    /**
+     * Версия строки для оптимистической блокировки: параллельные изменения одной карты не затирают друг друга,
+     * проигравшая транзакция получает OptimisticLockException и повторяется.
+     * Массовые UPDATE (переводы) увеличивают версию явно.
+     */
+    @Version
+    @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
+    private long version;
+
+    /**
+     * Полный баланс карты в минимальных единицах: основной баланс плюс несвернутые суббалансы.
+     */
+    public long getTotalBalance() {
+        return shardedBalance != null ? MoneyUtil.add(balance, shardedBalance) : balance;
+    }
+
+    /**
+     * Возвращает расшифрованный номер карты. Расшифровка выполняется только при первом обращении,
+     * поэтому операции, которым номер не нужен (переводы, блокировка, баланс, списки), не тратят время на AES.
+     */
+    public String getCardNumber() {
+        if (cardNumber == null) {
+            if (encryptedCardNumber != null) {
+                cardNumber = CardNumberConverter.decryptFromBytes(encryptedCardNumber);
+            } else if (encryptedCardNumberBase64 != null) {
+                cardNumber = CardNumberConverter.decrypt(encryptedCardNumberBase64);
+            }
+        }
+        return cardNumber;
+    }
+
+    /**
+     * Устанавливает номер карты, сразу вычисляя его зашифрованное представление в настроенном формате хранения.
+     */
+    public void setCardNumber(String cardNumber) {
+        this.cardNumber = cardNumber;
+        if (CardNumberConverter.getStorageFormat() == CardNumberStorageFormat.BINARY) {
+            this.encryptedCardNumber = CardNumberConverter.encryptToBytes(cardNumber);
+            this.encryptedCardNumberBase64 = null;
+        } else {
+            this.encryptedCardNumberBase64 = CardNumberConverter.encrypt(cardNumber);
+            this.encryptedCardNumber = null;
+        }
+    }
 
     @Override
     public boolean equals(Object object) {
         if (this == object) return true;
         if (object == null || getClass() != object.getClass()) return false;
         Card card = (Card) object;
-        return Objects.equals(cardNumber, card.cardNumber) && Objects.equals(expiryDate, card.expiryDate) && status == card.status && Objects.equals(balance, card.balance);
+        return id != null && Objects.equals(id, card.id);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(cardNumber, expiryDate, status, balance);
+        return getClass().hashCode();
     }
 }
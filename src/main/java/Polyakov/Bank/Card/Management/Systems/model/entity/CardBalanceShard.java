@@ -0,0 +1,29 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Суббаланс карты для зачислений. Баланс карты равен основному балансу плюс сумма ее суббалансов;
+ * суббалансы периодически и при нехватке средств для списания сворачиваются в основной баланс.
+ */
+@Entity
+@Table(name = "card_balance_shards")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class CardBalanceShard {
+
+    @EmbeddedId
+    private CardBalanceShardId id;
+
+    /**
+     * Баланс в минимальных единицах валюты (копейках).
+     */
+    @Column(name = "balance_minor", nullable = false)
+    private long balance;
+}
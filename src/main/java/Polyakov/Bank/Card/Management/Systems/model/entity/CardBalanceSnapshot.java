@@ -0,0 +1,36 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Свернутый баланс карты: сумма всех записей журнала до позиции {@link LedgerCompactionState}.
+ * Баланс по журналу — снимок плюс записи после этой позиции, поэтому для его вычисления не нужно читать всю историю.
+ */
+@Entity
+@Table(name = "card_balance_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class CardBalanceSnapshot {
+
+    @Id
+    @Column(name = "card_id")
+    private UUID cardId;
+
+    /**
+     * Баланс в минимальных единицах валюты (копейках).
+     */
+    @Column(name = "balance_minor", nullable = false)
+    private long balance;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,36 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Заранее сгенерированный и зарезервированный номер карты из пула.
+ * Номер хранится зашифрованным; слепой индекс уникален, поэтому один номер не может оказаться в пуле дважды.
+ */
+@Entity
+@Table(name = "card_number_reservations")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = {"encryptedCardNumber", "cardNumberHash"})
+public class CardNumberReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "encrypted_card_number", nullable = false)
+    private byte[] encryptedCardNumber;
+
+    @Column(name = "card_number_hash", nullable = false, unique = true)
+    private byte[] cardNumberHash;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,30 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Счетчик выданных порядковых номеров для BIN (первые цифры номера карты).
+ * next_value — первое значение, еще не выделенное ни одному экземпляру приложения.
+ */
+@Entity
+@Table(name = "card_number_sequences")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class CardNumberSequence {
+
+    @Id
+    @Column(length = 12)
+    private String bin;
+
+    @Column(name = "next_value", nullable = false)
+    private long nextValue;
+}
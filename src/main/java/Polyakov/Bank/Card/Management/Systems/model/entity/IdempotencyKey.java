@@ -0,0 +1,41 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Ключ идемпотентности перевода и его результат. Строка создается и заполняется в транзакции перевода,
+ * поэтому существует только для выполненных переводов; после expiresAt ключ можно использовать повторно.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = "requestHash")
+public class IdempotencyKey {
+
+    @EmbeddedId
+    private IdempotencyKeyId id;
+
+    /**
+     * SHA-256 параметров запроса: повтор с тем же ключом, но другими параметрами отклоняется.
+     */
+    @Column(name = "request_hash", nullable = false)
+    private byte[] requestHash;
+
+    @Column(name = "transfer_id")
+    private UUID transferId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,48 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Состояние перешифрования номеров карт на ключ определенной версии.
+ * Хранит позицию обхода (последний обработанный id), поэтому после перезапуска обход продолжается с нее.
+ */
+@Entity
+@Table(name = "key_rotation_progress")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class KeyRotationProgress {
+
+    @Id
+    @Column(name = "key_version")
+    private Integer keyVersion;
+
+    @Column(name = "last_card_id")
+    private UUID lastCardId;
+
+    @Column(name = "processed_count", nullable = false)
+    private long processedCount;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public KeyRotationProgress(Integer keyVersion, Instant startedAt) {
+        this.keyVersion = keyVersion;
+        this.startedAt = startedAt;
+        this.updatedAt = startedAt;
+    }
+}
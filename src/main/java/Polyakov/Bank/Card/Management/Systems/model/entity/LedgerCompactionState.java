@@ -0,0 +1,37 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Позиция свертки журнала (единственная строка): все записи до (lastCreatedAt, lastEntryId) включительно
+ * учтены в {@link CardBalanceSnapshot}. Позиция задается парой (время, id), потому что id выделяются блоками
+ * и не упорядочены по времени между экземплярами приложения.
+ */
+@Entity
+@Table(name = "ledger_compaction_state")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class LedgerCompactionState {
+
+    public static final int SINGLETON_ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "last_created_at", nullable = false)
+    private Instant lastCreatedAt;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private long lastEntryId;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
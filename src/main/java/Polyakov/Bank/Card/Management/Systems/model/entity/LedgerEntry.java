@@ -0,0 +1,68 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.LedgerEntryType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Запись журнала движения средств. Записи только добавляются и никогда не изменяются:
+ * списание хранится с отрицательной суммой, зачисление — с положительной, поэтому баланс карты равен сумме ее записей.
+ * <p>
+ * Идентификаторы выделяются из последовательности блоками (allocationSize), без обращения к БД на каждую запись,
+ * поэтому обе ноги перевода уходят одним пакетным INSERT. Время записи проставляет БД (now() транзакции).
+ */
+@Entity
+@Table(name = "ledger_entries")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private UUID cardId;
+
+    /**
+     * Вторая карта перевода (для списания — получатель, для зачисления — источник).
+     */
+    @Column(name = "counterparty_card_id")
+    private UUID counterpartyCardId;
+
+    /**
+     * Общий идентификатор обеих записей одного перевода.
+     */
+    @Column(name = "transfer_id")
+    private UUID transferId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 50)
+    private LedgerEntryType entryType;
+
+    /**
+     * Сумма в минимальных единицах валюты (копейках), со знаком.
+     */
+    @Column(name = "amount_minor", nullable = false)
+    private long amount;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private Instant createdAt;
+
+    public LedgerEntry(UUID cardId, UUID counterpartyCardId, UUID transferId, LedgerEntryType entryType, long amount) {
+        this.cardId = cardId;
+        this.counterpartyCardId = counterpartyCardId;
+        this.transferId = transferId;
+        this.entryType = entryType;
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,32 @@
+package Polyakov.Bank.Card.Management.Systems.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+/**
+ * Суммарный баланс пользователя по всем его картам (вместе с несвернутыми суббалансами).
+ * Обновляется приращениями в транзакциях, меняющих сумму, и сверяется с картами {@code UserBalanceReconciliationJob}.
+ */
+@Entity
+@Table(name = "user_balances")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class UserBalance {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    /**
+     * Сумма в минимальных единицах валюты (копейках).
+     */
+    @Column(name = "total_minor", nullable = false)
+    private long total;
+}
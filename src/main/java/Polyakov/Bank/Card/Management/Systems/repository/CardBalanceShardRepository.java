@@ -0,0 +1,72 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.CardBalanceShard;
+import Polyakov.Bank.Card.Management.Systems.model.entity.CardBalanceShardId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CardBalanceShardRepository extends JpaRepository<CardBalanceShard, CardBalanceShardId> {
+
+    /**
+     * Зачисляет сумму на случайный суббаланс активной карты владельца. Статус и владелец проверяются тем же
+     * оператором, что зачисляет, как в {@link CardRepository#credit}. Строка карты только читается (без блокировки),
+     * поэтому параллельные зачисления блокируют разные строки суббалансов.
+     *
+     * @return 1, если зачисление выполнено; 0, если карта не найдена у владельца, не активна или без суббалансов.
+     */
+    @Modifying
+    @Query(value = "UPDATE card_balance_shards SET balance_minor = balance_minor + :amount " +
+            "WHERE card_id = :cardId AND shard = (" +
+            "SELECT CAST(floor(random() * c.balance_shards) AS int) FROM cards c " +
+            "WHERE c.id = :cardId AND c.owner_id = :ownerId AND c.status = 'ACTIVE' AND c.balance_shards > 0)",
+            nativeQuery = true)
+    int creditRandomShard(@Param("cardId") UUID cardId, @Param("ownerId") UUID ownerId, @Param("amount") long amount);
+
+    /**
+     * Обнуляет суббалансы карты и возвращает их сумму одним оператором. Строки суббалансов блокируются,
+     * поэтому параллельное зачисление либо попадает в сумму, либо выполняется после обнуления.
+     * Вызывающий должен удерживать блокировку строки карты. Приведение типа записано через CAST: в нативном запросе
+     * Spring Data сокращение {@code ::} разбирается как именованный параметр.
+     *
+     * @return Сумма обнуленных суббалансов (0, если переносить нечего).
+     */
+    @Query(value = "WITH drained AS (" +
+            "UPDATE card_balance_shards s SET balance_minor = 0 " +
+            "FROM (SELECT shard, balance_minor FROM card_balance_shards " +
+            "WHERE card_id = :cardId AND balance_minor <> 0 FOR UPDATE) old " +
+            "WHERE s.card_id = :cardId AND s.shard = old.shard " +
+            "RETURNING old.balance_minor) " +
+            "SELECT CAST(COALESCE(SUM(balance_minor), 0) AS bigint) FROM drained", nativeQuery = true)
+    long drain(@Param("cardId") UUID cardId);
+
+    /**
+     * Карты, у которых есть несвернутые суббалансы (частичный индекс по balance_minor <> 0).
+     */
+    @Query(value = "SELECT DISTINCT card_id FROM card_balance_shards WHERE balance_minor <> 0 LIMIT :limit", nativeQuery = true)
+    List<UUID> findCardIdsWithPendingBalance(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "INSERT INTO card_balance_shards (card_id, shard, balance_minor) " +
+            "SELECT :cardId, shard, 0 FROM generate_series(0, :count - 1) AS shard", nativeQuery = true)
+    int createShards(@Param("cardId") UUID cardId, @Param("count") int count);
+
+    /**
+     * Удаляет все суббалансы карты и возвращает сумму удаленных строк одним оператором.
+     * Условия на баланс нет: строка, которую сейчас меняет параллельное зачисление, удаляется после его фиксации
+     * уже с зачисленной суммой, поэтому в сумму попадает все, что было зачислено до удаления.
+     * Вызывающий должен удерживать блокировку строки карты.
+     *
+     * @return Сумма удаленных суббалансов.
+     */
+    @Query(value = "WITH deleted AS (" +
+            "DELETE FROM card_balance_shards WHERE card_id = :cardId RETURNING balance_minor) " +
+            "SELECT CAST(COALESCE(SUM(balance_minor), 0) AS bigint) FROM deleted", nativeQuery = true)
+    long deleteShards(@Param("cardId") UUID cardId);
+}
@@ -0,0 +1,52 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.CardBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CardBalanceSnapshotRepository extends JpaRepository<CardBalanceSnapshot, UUID> {
+
+    /**
+     * Прибавляет к снимкам балансов суммы записей журнала в диапазоне позиций (from, to] одним оператором
+     * (upsert с группировкой по карте). Записи удаленных карт пропускаются.
+     *
+     * @return Количество затронутых снимков.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO card_balance_snapshots (card_id, balance_minor, updated_at) " +
+            "SELECT e.card_id, SUM(e.amount_minor), now() FROM ledger_entries e JOIN cards c ON c.id = e.card_id " +
+            "WHERE (e.created_at, e.id) > (:fromCreatedAt, :fromId) AND (e.created_at, e.id) <= (:toCreatedAt, :toId) " +
+            "GROUP BY e.card_id " +
+            "ON CONFLICT (card_id) DO UPDATE SET balance_minor = card_balance_snapshots.balance_minor + EXCLUDED.balance_minor, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int foldEntries(@Param("fromCreatedAt") Instant fromCreatedAt, @Param("fromId") long fromId,
+                    @Param("toCreatedAt") Instant toCreatedAt, @Param("toId") long toId);
+
+    /**
+     * Сверяет полный баланс карт (основной плюс суббалансы) с журналом: снимок плюс записи после позиции свертки. Запрос только читает данные,
+     * поэтому в транзакции REPEATABLE READ видит согласованное состояние карт и журнала без блокировок.
+     *
+     * @return Не более limit расхождений: [id карты, баланс карты, баланс по журналу] (балансы в минимальных единицах).
+     */
+    @Query(value = "SELECT c.id, c.balance_minor + COALESCE(sh.pending, 0) AS card_balance, " +
+            "COALESCE(s.balance_minor, 0) + COALESCE(t.delta, 0) AS ledger_balance " +
+            "FROM cards c " +
+            "LEFT JOIN (SELECT card_id, SUM(balance_minor) AS pending FROM card_balance_shards GROUP BY card_id) sh " +
+            "ON sh.card_id = c.id " +
+            "LEFT JOIN card_balance_snapshots s ON s.card_id = c.id " +
+            "LEFT JOIN (SELECT e.card_id, SUM(e.amount_minor) AS delta FROM ledger_entries e " +
+            "JOIN ledger_compaction_state st ON st.id = 1 " +
+            "WHERE (e.created_at, e.id) > (st.last_created_at, st.last_entry_id) GROUP BY e.card_id) t " +
+            "ON t.card_id = c.id " +
+            "WHERE c.balance_minor + COALESCE(sh.pending, 0) <> COALESCE(s.balance_minor, 0) + COALESCE(t.delta, 0) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Object[]> findBalanceMismatches(@Param("limit") int limit);
+}
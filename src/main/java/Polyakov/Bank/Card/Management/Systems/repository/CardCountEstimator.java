@@ -0,0 +1,81 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Оценка количества карт по фильтрам списка без подсчета: EXPLAIN запроса с теми же условиями, что
+ * и {@link Polyakov.Bank.Card.Management.Systems.repository.specification.CardSpecification}, возвращает
+ * оценку планировщика по статистике таблиц (ANALYZE). Стоимость не зависит от числа подходящих строк,
+ * но точность зависит от свежести статистики и корреляции условий.
+ */
+@Repository
+@Slf4j
+public class CardCountEstimator {
+
+    // Оценка строк верхнего узла плана: "Seq Scan on cards c  (cost=0.00..1.05 rows=5 width=4)"
+    private static final Pattern PLAN_ROWS = Pattern.compile(" rows=(\\d+) ");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param status          Статус карты (может быть null).
+     * @param ownerEmail      Email владельца (может быть null).
+     * @param ownerId         id владельца (может быть null).
+     * @param minBalanceMinor Нижняя граница баланса в минимальных единицах (может быть null).
+     * @param maxBalanceMinor Верхняя граница баланса в минимальных единицах (может быть null).
+     * @return Оценка количества карт, удовлетворяющих фильтрам, или -1, если план не удалось разобрать.
+     */
+    public long estimate(CardStatus status, String ownerEmail, UUID ownerId, Long minBalanceMinor, Long maxBalanceMinor) {
+        StringBuilder sql = new StringBuilder("EXPLAIN SELECT 1 FROM cards c");
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        if (ownerId != null) {
+            conditions.add("c.owner_id = ?");
+            parameters.add(ownerId);
+        } else if (StringUtils.hasText(ownerEmail)) {
+            sql.append(" JOIN users u ON u.id = c.owner_id");
+            conditions.add("u.email = ?");
+            parameters.add(ownerEmail);
+        }
+        if (status != null) {
+            conditions.add("c.status = ?");
+            parameters.add(status.name());
+        }
+        if (minBalanceMinor != null) {
+            conditions.add("c.balance_minor >= ?");
+            parameters.add(minBalanceMinor);
+        }
+        if (maxBalanceMinor != null) {
+            conditions.add("c.balance_minor <= ?");
+            parameters.add(maxBalanceMinor);
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        for (int i = 0; i < parameters.size(); i++) {
+            query.setParameter(i + 1, parameters.get(i));
+        }
+        String topNode = query.getResultList().get(0).toString();
+        Matcher rows = PLAN_ROWS.matcher(topNode);
+        if (!rows.find()) {
+            log.warn("Could not parse query plan for card count estimate: {}", topNode);
+            return -1;
+        }
+        return Long.parseLong(rows.group(1));
+    }
+}
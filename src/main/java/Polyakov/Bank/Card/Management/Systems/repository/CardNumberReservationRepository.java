@@ -0,0 +1,46 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.CardNumberReservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CardNumberReservationRepository extends JpaRepository<CardNumberReservation, UUID> {
+
+    boolean existsByCardNumberHash(byte[] cardNumberHash);
+
+    /**
+     * Возвращает те слепые индексы из переданных, которые уже зарезервированы в пуле.
+     */
+    @Query("SELECT r.cardNumberHash FROM CardNumberReservation r WHERE r.cardNumberHash IN :hashes")
+    List<byte[]> findExistingCardNumberHashes(@Param("hashes") Collection<byte[]> hashes);
+
+    /**
+     * Выбирает свободные резервы с блокировкой строк, пропуская уже заблокированные другими транзакциями
+     * (FOR UPDATE SKIP LOCKED, lock.timeout = -2). Параллельные выдачи не ждут друг друга и не получают один номер.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM CardNumberReservation r")
+    List<CardNumberReservation> findAvailableForClaim(Pageable pageable);
+
+    /**
+     * Удаляет резервы, созданные раньше указанного момента (например, зашифрованные ключом до ротации).
+     */
+    @Modifying
+    @Query("DELETE FROM CardNumberReservation r WHERE r.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
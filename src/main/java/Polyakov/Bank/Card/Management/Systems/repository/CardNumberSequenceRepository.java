@@ -0,0 +1,22 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.CardNumberSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CardNumberSequenceRepository extends JpaRepository<CardNumberSequence, String> {
+
+    /**
+     * Атомарно выделяет блок из blockSize значений последовательности BIN за один запрос (upsert с RETURNING).
+     * Конкурирующие экземпляры приложения сериализуются блокировкой строки и получают непересекающиеся блоки.
+     *
+     * @return Значение, следующее за концом выделенного блока; блок — [результат - blockSize, результат).
+     */
+    @Query(value = "INSERT INTO card_number_sequences (bin, next_value) VALUES (:bin, :blockSize) " +
+            "ON CONFLICT (bin) DO UPDATE SET next_value = card_number_sequences.next_value + EXCLUDED.next_value " +
+            "RETURNING next_value", nativeQuery = true)
+    long allocateBlock(@Param("bin") String bin, @Param("blockSize") long blockSize);
+}
@@ -1,18 +1,23 @@
 package Polyakov.Bank.Card.Management.Systems.repository;
 
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
 import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
 import Polyakov.Bank.Card.Management.Systems.model.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,14 +25,44 @@ import java.util.UUID;
 public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificationExecutor<Card> {
 
     /**
-     * Проверяет существование карты по значению столбца card_number (который хранит зашифрованное значение).
-     * Используем @Query, т.к. поле cardNumber в Entity представляет расшифрованное значение (из-за конвертера).
+     * Проверяет существование карты по слепому индексу номера (card_number_hash).
+     * Шифротекст для этого не подходит: из-за случайного IV один и тот же номер каждый раз шифруется по-разному.
      *
-     * @param encryptedCardNumber Зашифрованный номер карты (как он хранится в БД).
-     * @return true, если карта с таким зашифрованным номером существует, иначе false.
+     * @param cardNumberHash Слепой индекс номера карты.
+     * @return true, если карта с таким номером существует, иначе false.
      */
-    @Query("SELECT COUNT(c) > 0 FROM Card c WHERE c.cardNumber = :encryptedNumber")
-    boolean existsByEncryptedCardNumber(@Param("encryptedNumber") String encryptedCardNumber);
+    boolean existsByCardNumberHash(byte[] cardNumberHash);
+
+    /**
+     * Возвращает те слепые индексы из переданных, которые уже заняты картами (проверка уникальности пачкой).
+     */
+    @Query("SELECT c.cardNumberHash FROM Card c WHERE c.cardNumberHash IN :hashes")
+    List<byte[]> findExistingCardNumberHashes(@Param("hashes") Collection<byte[]> hashes);
+
+    /**
+     * Находит карту по точному номеру через слепой индекс (один проход по уникальному индексу).
+     *
+     * @param cardNumberHash Слепой индекс номера карты.
+     * @return Optional с картой, если она найдена.
+     */
+    @EntityGraph(attributePaths = {"owner"})
+    Optional<Card> findByCardNumberHash(byte[] cardNumberHash);
+
+    /**
+     * Выбирает порцию карт, для которых еще не заполнены слепой индекс или последние 4 цифры номера.
+     */
+    @Query("SELECT c FROM Card c WHERE c.cardNumberHash IS NULL OR c.cardNumberLastFour IS NULL")
+    List<Card> findCardsWithoutDerivedNumberColumns(Pageable pageable);
+
+    /**
+     * Выбирает следующую порцию карт после указанного id (keyset-пагинация по первичному ключу) с блокировкой строк.
+     * Блокировка нужна, чтобы перезапись номера не затерла изменения баланса, сделанные параллельно.
+     *
+     * @param afterId Последний обработанный id; для начала обхода передается минимальный UUID.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id > :afterId ORDER BY c.id")
+    List<Card> findChunkAfterForUpdate(@Param("afterId") UUID afterId, Pageable pageable);
 
     /**
      * Находит все карты, соответствующие спецификации, с пагинацией.
@@ -61,11 +96,71 @@ public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificat
 
     /**
      * Оптимизированный запрос для получения суммарного баланса карт пользователя.
-     * Суммирование происходит на стороне БД.
+     * Суммирование происходит на стороне БД, включая несвернутые суббалансы карт.
      * Использует COALESCE для возврата 0, если у пользователя нет карт или баланс null.
      * @param owner Владелец карт.
-     * @return Суммарный баланс карт пользователя.
+     * @return Суммарный баланс карт пользователя в минимальных единицах.
+     */
+    @Query("SELECT COALESCE(SUM(c.balance), 0) + (SELECT COALESCE(SUM(s.balance), 0) FROM CardBalanceShard s " +
+            "WHERE s.id.cardId IN (SELECT c2.id FROM Card c2 WHERE c2.owner = :owner AND c2.balanceShards > 0)) " +
+            "FROM Card c WHERE c.owner = :owner")
+    long getSumBalanceByOwner(@Param("owner") User owner);
+
+    /**
+     * Списывает сумму одним условным UPDATE: только с карты владельца в указанном статусе и при достаточном балансе.
+     * @return 1, если списание выполнено, иначе 0.
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.balance = c.balance - :amount, c.version = c.version + 1 " +
+            "WHERE c.id = :id AND c.owner.id = :ownerId AND c.status = :status AND c.balance >= :amount")
+    int debitIfSufficientFunds(@Param("id") UUID id, @Param("ownerId") UUID ownerId,
+                               @Param("amount") long amount, @Param("status") CardStatus status);
+
+    /**
+     * Зачисляет сумму одним условным UPDATE: только на карту владельца в указанном статусе и без суббалансов
+     * (зачисления на карту с суббалансами идут в card_balance_shards).
+     * @return 1, если зачисление выполнено, иначе 0.
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.balance = c.balance + :amount, c.version = c.version + 1 " +
+            "WHERE c.id = :id AND c.owner.id = :ownerId AND c.status = :status AND c.balanceShards = 0")
+    int credit(@Param("id") UUID id, @Param("ownerId") UUID ownerId,
+               @Param("amount") long amount, @Param("status") CardStatus status);
+
+    /**
+     * Статус карты владельца без загрузки сущности (для диагностики отказа в переводе).
+     */
+    @Query("SELECT c.status FROM Card c WHERE c.id = :id AND c.owner.id = :ownerId")
+    Optional<CardStatus> findStatusByIdAndOwnerId(@Param("id") UUID id, @Param("ownerId") UUID ownerId);
+
+    /**
+     * Статус и число суббалансов карты владельца без загрузки сущности (для разбора отказа в списании).
+     */
+    @Query("SELECT new Polyakov.Bank.Card.Management.Systems.repository.CardTransferState(c.status, c.balanceShards) " +
+            "FROM Card c WHERE c.id = :id AND c.owner.id = :ownerId")
+    Optional<CardTransferState> findTransferStateByIdAndOwnerId(@Param("id") UUID id, @Param("ownerId") UUID ownerId);
+
+    /**
+     * Загружает карты владельца одним запросом с блокировкой строк (SELECT ... ORDER BY id FOR UPDATE).
+     * Строки блокируются в порядке id, поэтому параллельные пакетные переводы по пересекающимся картам
+     * ждут друг друга, а не взаимоблокируются. ORDER BY id в PostgreSQL сравнивает uuid побайтово без знака —
+     * одиночные переводы блокируют карты в том же порядке ({@link Polyakov.Bank.Card.Management.Systems.util.UuidOrderUtil}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids AND c.owner.id = :ownerId ORDER BY c.id")
+    List<Card> findAllByIdInAndOwnerIdForUpdate(@Param("ids") Collection<UUID> ids, @Param("ownerId") UUID ownerId);
+
+    /**
+     * Прибавляет сумму к основному балансу карты без условий (свертка суббалансов).
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.balance = c.balance + :amount, c.version = c.version + 1 WHERE c.id = :id")
+    int addToBalance(@Param("id") UUID id, @Param("amount") long amount);
+
+    /**
+     * Блокирует строку карты (SELECT ... FOR UPDATE) без загрузки сущности.
+     * @return id карты, если она существует.
      */
-    @Query("SELECT COALESCE(SUM(c.balance), 0) FROM Card c WHERE c.owner = :owner")
-    BigDecimal getSumBalanceByOwner(@Param("owner") User owner);
+    @Query(value = "SELECT id FROM cards WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockById(@Param("id") UUID id);
 }
@@ -0,0 +1,12 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+
+/**
+ * Состояние карты, нужное для разбора отказа в переводе, без загрузки сущности.
+ *
+ * @param status        Статус карты.
+ * @param balanceShards Число суббалансов (0 — суббалансы выключены).
+ */
+public record CardTransferState(CardStatus status, int balanceShards) {
+}
@@ -0,0 +1,47 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.IdempotencyKey;
+import Polyakov.Bank.Card.Management.Systems.model.entity.IdempotencyKeyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, IdempotencyKeyId> {
+
+    /**
+     * Занимает ключ для текущей транзакции: вставляет строку или заменяет просроченную.
+     * Если тот же ключ занят незафиксированной транзакцией, оператор ждет ее завершения (уникальный индекс),
+     * поэтому параллельные повторы одного запроса выполняются строго по очереди.
+     *
+     * @return 1, если ключ занят этой транзакцией; 0, если ключ уже использован и еще не истек.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (owner_id, idempotency_key, request_hash, created_at, expires_at) " +
+            "VALUES (:ownerId, :key, :requestHash, :createdAt, :expiresAt) " +
+            "ON CONFLICT (owner_id, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+            "transfer_id = NULL, created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at <= EXCLUDED.created_at", nativeQuery = true)
+    int claim(@Param("ownerId") UUID ownerId, @Param("key") String key, @Param("requestHash") byte[] requestHash,
+              @Param("createdAt") Instant createdAt, @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.transferId = :transferId WHERE k.id.ownerId = :ownerId AND k.id.key = :key")
+    int recordTransfer(@Param("ownerId") UUID ownerId, @Param("key") String key, @Param("transferId") UUID transferId);
+
+    /**
+     * Удаляет не более batchSize просроченных ключей (короткая транзакция вместо одного большого DELETE).
+     *
+     * @return Количество удаленных ключей.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys WHERE (owner_id, idempotency_key) IN (" +
+            "SELECT owner_id, idempotency_key FROM idempotency_keys WHERE expires_at < :now LIMIT :batchSize)",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
+}
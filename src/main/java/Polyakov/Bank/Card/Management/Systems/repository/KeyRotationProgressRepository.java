@@ -0,0 +1,23 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.KeyRotationProgress;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface KeyRotationProgressRepository extends JpaRepository<KeyRotationProgress, Integer> {
+
+    /**
+     * Загружает состояние перешифрования с блокировкой строки (SELECT ... FOR UPDATE).
+     * Порции, обрабатываемые разными экземплярами приложения, за счет этого выполняются строго по очереди.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM KeyRotationProgress p WHERE p.keyVersion = :keyVersion")
+    Optional<KeyRotationProgress> findForUpdate(@Param("keyVersion") Integer keyVersion);
+}
@@ -0,0 +1,21 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.LedgerCompactionState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface LedgerCompactionStateRepository extends JpaRepository<LedgerCompactionState, Integer> {
+
+    /**
+     * Загружает позицию свертки с блокировкой строки: свертку выполняет только один экземпляр приложения за раз.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM LedgerCompactionState s WHERE s.id = " + LedgerCompactionState.SINGLETON_ID)
+    Optional<LedgerCompactionState> findForUpdate();
+}
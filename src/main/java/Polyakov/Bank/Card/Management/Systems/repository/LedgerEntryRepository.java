@@ -0,0 +1,64 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Граница свертки по часам БД: начало самой старой из еще открытых транзакций базы (кроме текущей), но не позже
+     * чем gracePeriodSeconds назад. created_at записи равен началу ее транзакции (now()), а фиксироваться транзакция
+     * может намного позже, поэтому записи открытых транзакций лежат не раньше границы, а все записи до нее уже
+     * зафиксированы. Транзакция пропадает из pg_stat_activity только после фиксации, поэтому границу нужно читать
+     * отдельным оператором до поиска порции: снимок следующего оператора видит записи всех транзакций до нее.
+     * Видны транзакции роли приложения (чужие роли без pg_read_all_stats скрыты), а пишет журнал только приложение.
+     */
+    @Query(value = "SELECT LEAST(now() - make_interval(secs => :gracePeriodSeconds), MIN(a.xact_start)) " +
+            "FROM pg_stat_activity a WHERE a.datname = current_database() AND a.pid <> pg_backend_pid()", nativeQuery = true)
+    Instant findCompactionHorizon(@Param("gracePeriodSeconds") long gracePeriodSeconds);
+
+    /**
+     * Находит последнюю запись очередной порции свертки: не более limit записей после позиции (afterCreatedAt, afterId)
+     * в порядке (created_at, id), созданных раньше границы {@link #findCompactionHorizon(long)}.
+     *
+     * @return id последней записи порции или пусто, если сворачивать нечего.
+     */
+    @Query(value = "SELECT chunk.id FROM (" +
+            "SELECT e.created_at, e.id FROM ledger_entries e " +
+            "WHERE (e.created_at, e.id) > (:afterCreatedAt, :afterId) AND e.created_at < :before " +
+            "ORDER BY e.created_at, e.id LIMIT :limit) chunk " +
+            "ORDER BY chunk.created_at DESC, chunk.id DESC LIMIT 1", nativeQuery = true)
+    Optional<Long> findCompactionChunkEnd(@Param("afterCreatedAt") Instant afterCreatedAt,
+                                          @Param("afterId") long afterId,
+                                          @Param("before") Instant before,
+                                          @Param("limit") int limit);
+
+    /**
+     * Первая страница истории карты, от новых записей к старым. Выбираются только столбцы покрывающего индекса
+     * ix_ledger_entries_card_history, поэтому запрос выполняется сканированием только индекса.
+     */
+    @Query(value = "SELECT e.* FROM ledger_entries e WHERE e.card_id = :cardId " +
+            "ORDER BY e.created_at DESC, e.id DESC LIMIT :limit", nativeQuery = true)
+    List<LedgerEntry> findCardHistory(@Param("cardId") UUID cardId, @Param("limit") int limit);
+
+    /**
+     * Следующая страница истории карты после позиции (beforeCreatedAt, beforeId) предыдущей страницы.
+     * Сравнение кортежей продолжает обход индекса с этой позиции, поэтому любая страница стоит столько же, сколько первая.
+     */
+    @Query(value = "SELECT e.* FROM ledger_entries e WHERE e.card_id = :cardId " +
+            "AND (e.created_at, e.id) < (:beforeCreatedAt, :beforeId) " +
+            "ORDER BY e.created_at DESC, e.id DESC LIMIT :limit", nativeQuery = true)
+    List<LedgerEntry> findCardHistoryBefore(@Param("cardId") UUID cardId,
+                                            @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                            @Param("beforeId") long beforeId,
+                                            @Param("limit") int limit);
+}
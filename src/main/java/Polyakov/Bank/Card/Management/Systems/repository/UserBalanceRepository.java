@@ -0,0 +1,61 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.UserBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UserBalanceRepository extends JpaRepository<UserBalance, UUID> {
+
+    /**
+     * Суммарный баланс пользователя одним чтением по первичному ключу.
+     */
+    @Query("SELECT b.total FROM UserBalance b WHERE b.userId = :userId")
+    Optional<Long> findTotalByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Прибавляет приращение к суммарному балансу пользователя (upsert), строка остается заблокированной до конца транзакции.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_balances (user_id, total_minor) VALUES (:userId, :delta) " +
+            "ON CONFLICT (user_id) DO UPDATE SET total_minor = user_balances.total_minor + EXCLUDED.total_minor",
+            nativeQuery = true)
+    int addToTotal(@Param("userId") UUID userId, @Param("delta") long delta);
+
+    /**
+     * Записывает суммарный баланс пользователя (upsert).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_balances (user_id, total_minor) VALUES (:userId, :total) " +
+            "ON CONFLICT (user_id) DO UPDATE SET total_minor = EXCLUDED.total_minor", nativeQuery = true)
+    int setTotal(@Param("userId") UUID userId, @Param("total") long total);
+
+    /**
+     * Блокирует строку суммарного баланса (SELECT ... FOR UPDATE) без загрузки сущности.
+     */
+    @Query(value = "SELECT user_id FROM user_balances WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Сверяет суммарные балансы с картами (основной баланс плюс суббалансы). Запрос только читает данные,
+     * поэтому в транзакции REPEATABLE READ видит согласованное состояние без блокировок.
+     *
+     * @return Не более limit расхождений: [id пользователя, сохраненная сумма, сумма по картам] (в минимальных единицах).
+     */
+    @Query(value = "SELECT u.id, COALESCE(b.total_minor, 0) AS stored_total, COALESCE(t.total, 0) AS card_total " +
+            "FROM users u " +
+            "LEFT JOIN user_balances b ON b.user_id = u.id " +
+            "LEFT JOIN (SELECT c.owner_id, SUM(c.balance_minor + COALESCE(sh.pending, 0)) AS total FROM cards c " +
+            "LEFT JOIN (SELECT card_id, SUM(balance_minor) AS pending FROM card_balance_shards GROUP BY card_id) sh " +
+            "ON sh.card_id = c.id GROUP BY c.owner_id) t ON t.owner_id = u.id " +
+            "WHERE COALESCE(b.total_minor, 0) <> COALESCE(t.total, 0) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Object[]> findTotalMismatches(@Param("limit") int limit);
+}
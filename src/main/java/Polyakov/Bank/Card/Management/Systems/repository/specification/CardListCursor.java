@@ -0,0 +1,101 @@
+package Polyakov.Bank.Card.Management.Systems.repository.specification;
+
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card_;
+import Polyakov.Bank.Card.Management.Systems.util.CursorUtil;
+import org.springframework.data.domain.Sort;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.UUID;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.INVALID_CURSOR;
+
+/**
+ * Позиция в списке карт для keyset-пагинации: ключ сортировки и id последней карты страницы.
+ * Курсор хранит и саму сортировку, поэтому следующие страницы запрашиваются только по курсору.
+ * Поддерживается сортировка по id или по балансу (с id для однозначного порядка при равных балансах).
+ *
+ * @param sortKey   Свойство сортировки.
+ * @param direction Направление сортировки.
+ * @param balance   Баланс последней карты (только для сортировки по балансу).
+ * @param id        id последней карты.
+ */
+public record CardListCursor(SortKey sortKey, Sort.Direction direction, long balance, UUID id) {
+
+    // Ключ курсора: свойство, направление, баланс, id
+    private static final int LENGTH = 2 + Long.BYTES + 2 * Long.BYTES;
+
+    public enum SortKey {
+        ID(Card_.ID), BALANCE(Card_.BALANCE);
+
+        private final String property;
+
+        SortKey(String property) {
+            this.property = property;
+        }
+    }
+
+    /**
+     * Сортировка, которую поддерживает keyset-пагинация, с добавленным id для однозначного порядка.
+     *
+     * @return Пусто, если сортировка не поддерживается (тогда доступна только пагинация по номеру страницы).
+     */
+    public static Optional<Sort> keysetSort(Sort sort) {
+        if (sort.isUnsorted()) {
+            return Optional.of(Sort.by(Card_.ID));
+        }
+        if (sort.stream().count() != 1) {
+            return Optional.empty();
+        }
+        Sort.Order order = sort.iterator().next();
+        for (SortKey key : SortKey.values()) {
+            if (key.property.equals(order.getProperty())) {
+                return Optional.of(sortOf(key, order.getDirection()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Курсор после карты, последней на странице с сортировкой, возвращенной {@link #keysetSort(Sort)}.
+     */
+    public static CardListCursor after(Card card, Sort keysetSort) {
+        Sort.Order order = keysetSort.iterator().next();
+        SortKey key = Card_.BALANCE.equals(order.getProperty()) ? SortKey.BALANCE : SortKey.ID;
+        return new CardListCursor(key, order.getDirection(), key == SortKey.BALANCE ? card.getBalance() : 0, card.getId());
+    }
+
+    public Sort sort() {
+        return sortOf(sortKey, direction);
+    }
+
+    public String encode() {
+        return CursorUtil.encode(ByteBuffer.allocate(LENGTH)
+                .put((byte) sortKey.ordinal())
+                .put((byte) direction.ordinal())
+                .putLong(balance)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits()));
+    }
+
+    /**
+     * @throws BadRequestException если курсор поврежден.
+     */
+    public static CardListCursor decode(String cursor) {
+        ByteBuffer key = CursorUtil.decode(cursor, LENGTH);
+        int sortKey = key.get();
+        int direction = key.get();
+        if (sortKey < 0 || sortKey >= SortKey.values().length || direction < 0 || direction >= Sort.Direction.values().length) {
+            throw new BadRequestException(INVALID_CURSOR);
+        }
+        return new CardListCursor(SortKey.values()[sortKey], Sort.Direction.values()[direction],
+                key.getLong(), new UUID(key.getLong(), key.getLong()));
+    }
+
+    private static Sort sortOf(SortKey key, Sort.Direction direction) {
+        Sort byId = Sort.by(direction, Card_.ID);
+        return key == SortKey.ID ? byId : Sort.by(direction, key.property).and(byId);
+    }
+}
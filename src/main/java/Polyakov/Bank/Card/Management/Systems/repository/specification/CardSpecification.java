@@ -5,8 +5,10 @@ import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
 import Polyakov.Bank.Card.Management.Systems.model.entity.Card_;
 import Polyakov.Bank.Card.Management.Systems.model.entity.User;
 import Polyakov.Bank.Card.Management.Systems.model.entity.User_;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Fetch;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
@@ -23,6 +25,7 @@ public class CardSpecification {
     /**
      * Создает спецификацию для фильтрации карт на основе параметров.
      * Поддерживает фильтрацию по статусу, email владельца (для админа), диапазону баланса.
+     * Границы баланса переводятся в минимальные единицы с округлением внутрь диапазона (см. {@link MoneyUtil}).
      *
      * @param status      Статус карты (может быть null).
      * @param ownerEmail  Email владельца (для админа, может быть null).
@@ -50,22 +53,66 @@ public class CardSpecification {
             }
 
             if (currentUser == null && StringUtils.hasText(ownerEmail)) {
-                Join<Card, User> ownerJoin = root.join(Card_.owner, JoinType.INNER);
-                predicates.add(criteriaBuilder.equal(ownerJoin.get(User_.email), ownerEmail));
+                predicates.add(criteriaBuilder.equal(ownerJoin(root).get(User_.email), ownerEmail));
             }
 
             if (minBalance != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get(Card_.balance), minBalance));
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get(Card_.balance), MoneyUtil.toMinorUnitsCeiling(minBalance)));
             }
 
             if (maxBalance != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get(Card_.balance), maxBalance));
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get(Card_.balance), MoneyUtil.toMinorUnitsFloor(maxBalance)));
             }
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
 
+    /**
+     * Условие keyset-пагинации: карты строго после позиции курсора в порядке {@link CardListCursor#sort()}.
+     * Для сортировки по балансу — (balance, id) после (balance курсора, id курсора) с учетом направления.
+     * Условие с OR PostgreSQL применяет только как фильтр, поэтому к нему добавлена нестрогая граница по балансу:
+     * по ней обход индекса (balance_minor, id) начинается с позиции курсора, а не с начала индекса.
+     */
+    public static Specification<Card> after(CardListCursor cursor) {
+        return (Root<Card> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) -> {
+            boolean ascending = cursor.direction().isAscending();
+            Predicate afterId = ascending
+                    ? criteriaBuilder.greaterThan(root.get(Card_.id), cursor.id())
+                    : criteriaBuilder.lessThan(root.get(Card_.id), cursor.id());
+            if (cursor.sortKey() == CardListCursor.SortKey.ID) {
+                return afterId;
+            }
+            Predicate afterBalance = ascending
+                    ? criteriaBuilder.greaterThan(root.get(Card_.balance), cursor.balance())
+                    : criteriaBuilder.lessThan(root.get(Card_.balance), cursor.balance());
+            Predicate fromBalance = ascending
+                    ? criteriaBuilder.greaterThanOrEqualTo(root.get(Card_.balance), cursor.balance())
+                    : criteriaBuilder.lessThanOrEqualTo(root.get(Card_.balance), cursor.balance());
+            return criteriaBuilder.and(fromBalance, criteriaBuilder.or(afterBalance,
+                    criteriaBuilder.and(criteriaBuilder.equal(root.get(Card_.balance), cursor.balance()), afterId)));
+        };
+    }
+
+    /**
+     * Соединение с владельцем для условия по email: если запрос уже подгружает владельца (fetch) или соединен с ним,
+     * используется это соединение, иначе добавляется новое. Так users не соединяется с картами дважды.
+     */
+    @SuppressWarnings("unchecked")
+    private static Join<Card, User> ownerJoin(Root<Card> root) {
+        for (Fetch<Card, ?> fetch : root.getFetches()) {
+            if (fetch.getAttribute().equals(Card_.owner) && fetch instanceof Join<?, ?> join) {
+                return (Join<Card, User>) join;
+            }
+        }
+        for (Join<Card, ?> join : root.getJoins()) {
+            if (join.getAttribute().equals(Card_.owner)) {
+                return (Join<Card, User>) join;
+            }
+        }
+        return root.join(Card_.owner, JoinType.INNER);
+    }
+
     // TODO защитить, только админ может вызывать
     public static Specification<Card> filterBy(
             CardStatus status, String ownerEmail, BigDecimal minBalance, BigDecimal maxBalance) {
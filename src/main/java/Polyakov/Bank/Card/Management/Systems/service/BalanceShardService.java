@@ -0,0 +1,37 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+
+import java.util.UUID;
+
+/**
+ * Суббалансы карт с частыми зачислениями (app.balance-shards).
+ */
+public interface BalanceShardService {
+    /**
+     * Зачисляет сумму (в минимальных единицах) на случайный суббаланс карты в текущей транзакции.
+     * @return true, если карта активна, принадлежит владельцу, у нее включены суббалансы и зачисление выполнено.
+     */
+    boolean creditShard(UUID cardId, UUID ownerId, long amount);
+
+    /**
+     * Обнуляет суббалансы карты в текущей транзакции; вызывающий должен удерживать блокировку строки карты
+     * и сам прибавить результат к ее основному балансу.
+     * @return Сумма перенесенных суббалансов.
+     */
+    long drainShards(UUID cardId);
+
+    /**
+     * Сворачивает суббалансы карты в основной баланс (блокирует строку карты, затем суббалансы).
+     * @return Перенесенная сумма.
+     */
+    long foldShards(UUID cardId);
+
+    /**
+     * Меняет число суббалансов карты: текущие суббалансы сворачиваются, затем создаются новые. (Только Админ)
+     * @param cardId ID карты.
+     * @param shards Новое число суббалансов (0 — выключить режим).
+     * @return Обновленная карта.
+     */
+    Card configureShards(UUID cardId, int shards);
+}
@@ -0,0 +1,16 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.BatchTransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BatchTransferResponse;
+
+public interface BatchTransferService {
+
+    /**
+     * Выполняет пакет переводов между картами текущего пользователя в одной транзакции.
+     * В режиме PER_ITEM ошибочные переводы пропускаются, в режиме ALL_OR_NOTHING ошибка любого перевода
+     * отменяет весь пакет (все результаты неуспешны, балансы не меняются).
+     * @param request Переводы и режим пакета.
+     * @return Итог с результатом по каждому переводу.
+     */
+    BatchTransferResponse transferFunds(BatchTransferRequest request);
+}
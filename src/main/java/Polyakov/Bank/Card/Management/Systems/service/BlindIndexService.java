@@ -0,0 +1,15 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+/**
+ * Детерминированный "слепой индекс" для зашифрованных данных.
+ * Позволяет искать и проверять уникальность значений, не расшифровывая их.
+ */
+public interface BlindIndexService {
+    /**
+     * Вычисляет слепой индекс значения.
+     * @param data Исходная строка (например, номер карты).
+     * @return Ключевой хеш значения; одинаковые значения дают одинаковый результат.
+     * @throws RuntimeException если произошла ошибка вычисления.
+     */
+    byte[] hash(String data);
+}
@@ -0,0 +1,17 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.CreateCardRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BulkCreateCardsResponse;
+
+import java.util.List;
+
+public interface BulkCardIssuanceService {
+
+    /**
+     * Выпускает карты массово. (Только Админ)
+     * Ошибка одного элемента (например, несуществующий пользователь) не отменяет выпуск остальных.
+     * @param requests Пары (ID пользователя, срок действия).
+     * @return Итог с результатом по каждому элементу.
+     */
+    BulkCreateCardsResponse createCards(List<CreateCardRequest> requests);
+}
@@ -0,0 +1,28 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardExportFormat;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+/**
+ * Потоковая выгрузка карт для администратора.
+ */
+public interface CardExportService {
+    /**
+     * Пишет карты, подходящие под фильтры (как в списке карт администратора), в поток по мере чтения из БД.
+     * Номера карт выгружаются только в маскированном виде.
+     *
+     * @param status     Статус карты (может быть null).
+     * @param ownerEmail Email владельца (может быть null).
+     * @param minBalance Минимальный баланс (может быть null).
+     * @param maxBalance Максимальный баланс (может быть null).
+     * @param format     Формат выгрузки.
+     * @param out        Поток ответа; не закрывается.
+     * @return Количество выгруженных карт.
+     */
+    long exportCards(CardStatus status, String ownerEmail, BigDecimal minBalance, BigDecimal maxBalance,
+                     CardExportFormat format, OutputStream out) throws IOException;
+}
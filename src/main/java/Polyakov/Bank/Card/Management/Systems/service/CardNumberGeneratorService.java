@@ -1,9 +1,26 @@
 package Polyakov.Bank.Card.Management.Systems.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface CardNumberGeneratorService {
     /**
      * Генерирует уникальный и валидный по алгоритму Луна номер банковской карты.
      * @return Строка с номером карты (16 цифр без разделителей).
      */
     String generateUniqueCardNumber();
+
+    /**
+     * Генерирует несколько уникальных номеров (для массового выпуска).
+     * Реализации могут переопределить метод, чтобы проверять уникальность пачкой, а не по одному номеру.
+     * @param count Количество номеров.
+     * @return Различные номера карт.
+     */
+    default List<String> generateUniqueCardNumbers(int count) {
+        List<String> cardNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cardNumbers.add(generateUniqueCardNumber());
+        }
+        return cardNumbers;
+    }
 }
@@ -0,0 +1,22 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import java.util.Optional;
+
+/**
+ * Пул заранее сгенерированных уникальных номеров карт.
+ * Позволяет выпускать карты без генерации номера и проверки уникальности в момент запроса.
+ */
+public interface CardNumberReservationService {
+    /**
+     * Забирает номер из пула. Должен вызываться внутри транзакции создания карты:
+     * резерв удаляется в той же транзакции, поэтому при ее откате номер возвращается в пул.
+     * @return Номер карты или пустой Optional, если пул пуст или отключен.
+     */
+    Optional<String> claim();
+
+    /**
+     * Пополняет пул до целевого размера, если он опустился ниже нижней границы.
+     * @return Количество добавленных номеров.
+     */
+    int refillIfNeeded();
+}
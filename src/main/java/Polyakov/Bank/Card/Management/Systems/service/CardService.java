@@ -1,11 +1,14 @@
 package Polyakov.Bank.Card.Management.Systems.service;
 
 import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
 import Polyakov.Bank.Card.Management.Systems.model.dto.BalanceDto;
 import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.TransferHistoryEntryDto;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.CreateCardRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
-import org.springframework.data.domain.Page;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.CursorPagedResponse;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.PagedResponse;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
@@ -35,6 +38,14 @@ public interface CardService {
      */
     CardDto updateCardStatusAsAdmin(UUID id, CardStatus newStatus);
 
+    /**
+     * Включает, меняет или выключает суббалансы карты для частых зачислений. (Только Админ)
+     * @param id ID карты.
+     * @param shards Число суббалансов (0 — выключить).
+     * @return DTO обновленной карты.
+     */
+    CardDto updateBalanceShardsAsAdmin(UUID id, int shards);
+
     /**
      * Удаляет карту. (Только Админ)
      * @param id ID карты для удаления.
@@ -57,9 +68,20 @@ public interface CardService {
 
     /**
      * Выполняет перевод средств между двумя картами текущего пользователя.
+     * Повтор с тем же ключом идемпотентности не выполняет перевод повторно.
      * @param request DTO с деталями перевода.
+     * @param idempotencyKey Ключ идемпотентности (null — без проверки повторов).
+     */
+    void transferFunds(TransferRequest request, String idempotencyKey);
+
+    /**
+     * Получает историю движения средств по карте текущего пользователя, от новых записей к старым.
+     * @param id ID карты.
+     * @param cursor Курсор из предыдущей страницы (null — первая страница).
+     * @param size Размер страницы.
+     * @return Страница истории с курсором следующей страницы.
      */
-    void transferFunds(TransferRequest request);
+    CursorPagedResponse<TransferHistoryEntryDto> getCurrentUserCardHistory(UUID id, String cursor, int size);
 
     /**
      * Получает баланс конкретной карты текущего пользователя.
@@ -69,7 +91,7 @@ public interface CardService {
     BalanceDto getCurrentUserCardBalance(UUID id);
 
     /**
-     * Получает суммарный баланс по всем картам текущего пользователя.
+     * Получает суммарный баланс по всем картам текущего пользователя (одно чтение user_balances по первичному ключу).
      * @return DTO с общим балансом.
      */
     BalanceDto getCurrentUserTotalBalance();
@@ -81,9 +103,12 @@ public interface CardService {
      * @param minBalance Фильтр по минимальному балансу (null для отсутствия фильтра).
      * @param maxBalance Фильтр по максимальному балансу (null для отсутствия фильтра).
      * @param pageable Параметры пагинации и сортировки.
-     * @return Страница с DTO карт.
+     * @param cursor Курсор следующей страницы из предыдущего ответа (null — страница по номеру из pageable).
+     * @param totalMode Как вычислять общее количество карт (null — EXACT).
+     * @return Страница с DTO карт и курсором следующей страницы.
      */
-    Page<CardDto> getAllCardsFiltered(CardStatus status, String ownerEmail, BigDecimal minBalance, BigDecimal maxBalance, Pageable pageable);
+    PagedResponse<CardDto> getAllCardsFiltered(CardStatus status, String ownerEmail, BigDecimal minBalance, BigDecimal maxBalance,
+                                               Pageable pageable, String cursor, PageTotalMode totalMode);
 
     /**
      * Получает страницу карт текущего пользователя с пагинацией и фильтрацией.
@@ -91,7 +116,10 @@ public interface CardService {
      * @param minBalance Фильтр по минимальному балансу (null для отсутствия фильтра).
      * @param maxBalance Фильтр по максимальному балансу (null для отсутствия фильтра).
      * @param pageable Параметры пагинации и сортировки.
-     * @return Страница с DTO карт пользователя.
+     * @param cursor Курсор следующей страницы из предыдущего ответа (null — страница по номеру из pageable).
+     * @param totalMode Как вычислять общее количество карт (null — EXACT).
+     * @return Страница с DTO карт пользователя и курсором следующей страницы.
      */
-    Page<CardDto> getCurrentUserCardsFiltered(CardStatus status, BigDecimal minBalance, BigDecimal maxBalance, Pageable pageable);
+    PagedResponse<CardDto> getCurrentUserCardsFiltered(CardStatus status, BigDecimal minBalance, BigDecimal maxBalance,
+                                                       Pageable pageable, String cursor, PageTotalMode totalMode);
 }
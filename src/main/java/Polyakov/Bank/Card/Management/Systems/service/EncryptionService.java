@@ -19,4 +19,25 @@ public interface EncryptionService {
      * @throws RuntimeException если произошла ошибка дешифрования.
      */
     String decrypt(String encryptedData);
+
+    /**
+     * Шифрует строку в двоичное представление (без Base64), пригодное для хранения в bytea.
+     * @param data Исходная строка.
+     * @return Зашифрованные данные.
+     * @throws RuntimeException если произошла ошибка шифрования.
+     */
+    byte[] encryptToBytes(String data);
+
+    /**
+     * Дешифрует двоичное представление, полученное из {@link #encryptToBytes(String)}.
+     * @param encryptedData Зашифрованные данные.
+     * @return Исходная расшифрованная строка.
+     * @throws RuntimeException если произошла ошибка дешифрования.
+     */
+    String decryptFromBytes(byte[] encryptedData);
+
+    /**
+     * @return Версия ключа, которым шифруются новые данные.
+     */
+    int getActiveKeyVersion();
 }
@@ -0,0 +1,37 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Ключи идемпотентности переводов (заголовок Idempotency-Key): повтор запроса с тем же ключом
+ * не выполняет перевод второй раз, а возвращает результат первого.
+ */
+public interface IdempotencyService {
+    /**
+     * Проверяет ключ и, если он еще не использован, занимает его в текущей транзакции перевода.
+     * @param ownerId ID владельца карт.
+     * @param key Ключ идемпотентности из запроса.
+     * @param request Параметры перевода.
+     * @return ID ранее выполненного перевода, если ключ уже использован; пусто, если перевод нужно выполнить.
+     * @throws Polyakov.Bank.Card.Management.Systems.exception.BadRequestException если ключ использован с другими параметрами.
+     */
+    Optional<UUID> findOrClaimTransfer(UUID ownerId, String key, TransferRequest request);
+
+    /**
+     * Сохраняет результат перевода для занятого ключа в текущей транзакции перевода.
+     * @param ownerId ID владельца карт.
+     * @param key Ключ идемпотентности из запроса.
+     * @param request Параметры перевода.
+     * @param transferId ID выполненного перевода.
+     */
+    void completeTransfer(UUID ownerId, String key, TransferRequest request, UUID transferId);
+
+    /**
+     * Удаляет просроченные ключи порциями.
+     * @return Количество удаленных ключей.
+     */
+    int purgeExpired();
+}
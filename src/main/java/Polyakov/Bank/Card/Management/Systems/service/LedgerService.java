@@ -0,0 +1,17 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import java.util.UUID;
+
+/**
+ * Журнал движения средств по картам (только добавление записей).
+ */
+public interface LedgerService {
+    /**
+     * Записывает обе ноги перевода (списание и зачисление) в текущей транзакции перевода.
+     * @param fromCardId ID карты-источника.
+     * @param toCardId ID карты-получателя.
+     * @param amount Сумма перевода в минимальных единицах (положительная).
+     * @return Идентификатор перевода, общий для обеих записей.
+     */
+    UUID recordTransfer(UUID fromCardId, UUID toCardId, long amount);
+}
@@ -0,0 +1,22 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import java.util.UUID;
+
+/**
+ * Стратегия изменения балансов при переводе между картами одного владельца.
+ * Реализация выбирается параметром app.transfer.mode и вызывается внутри транзакции перевода.
+ */
+public interface TransferExecutor {
+    /**
+     * Списывает сумму с карты-источника и зачисляет на карту-получатель.
+     * Входные данные уже проверены (разные карты, положительная сумма).
+     * @param ownerId ID владельца обеих карт.
+     * @param fromCardId ID карты-источника.
+     * @param toCardId ID карты-получателя.
+     * @param amount Сумма перевода в минимальных единицах.
+     * @throws Polyakov.Bank.Card.Management.Systems.exception.ResourceNotFoundException если карта не найдена у владельца.
+     * @throws Polyakov.Bank.Card.Management.Systems.exception.CardOperationException если карта не активна.
+     * @throws Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException если недостаточно средств.
+     */
+    void transfer(UUID ownerId, UUID fromCardId, UUID toCardId, long amount);
+}
@@ -0,0 +1,24 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Асинхронный конвейер переводов (app.transfer.pipeline.enabled): переводы выполняются не в потоке запроса,
+ * а писателями конвейера группами в общих транзакциях.
+ */
+public interface TransferPipeline {
+    /**
+     * Ставит проверенный перевод в очередь.
+     * @param ownerId ID владельца обеих карт.
+     * @param request Параметры перевода (уже проверены).
+     * @param idempotencyKey Ключ идемпотентности (null — без проверки повторов).
+     * @return Future, завершаемый ID перевода после фиксации его группы или исключением перевода.
+     *         {@code cancel} отменяет перевод, только пока писатель его не взял: отмененный перевод не выполняется,
+     *         а если cancel вернул false, перевод уже выполняется и future завершится его исходом.
+     * @throws Polyakov.Bank.Card.Management.Systems.exception.TransferPipelineUnavailableException если очередь переполнена или конвейер остановлен.
+     */
+    CompletableFuture<UUID> submit(UUID ownerId, TransferRequest request, String idempotencyKey);
+}
@@ -0,0 +1,20 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+
+import java.util.UUID;
+
+/**
+ * Шаги одного перевода внутри транзакции: проверка ключа идемпотентности, изменение балансов
+ * ({@link TransferExecutor}), запись в журнал. Используется и синхронным переводом, и конвейером {@link TransferPipeline}.
+ */
+public interface TransferProcessingService {
+    /**
+     * Выполняет проверенный перевод в текущей транзакции.
+     * @param ownerId ID владельца обеих карт.
+     * @param request Параметры перевода (уже проверены).
+     * @param idempotencyKey Ключ идемпотентности (null — без проверки повторов).
+     * @return ID перевода; при повторе по ключу — ID ранее выполненного перевода.
+     */
+    UUID execute(UUID ownerId, TransferRequest request, String idempotencyKey);
+}
@@ -0,0 +1,31 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import Polyakov.Bank.Card.Management.Systems.exception.CardOperationException;
+import Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException;
+import Polyakov.Bank.Card.Management.Systems.exception.ResourceNotFoundException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Шаг перевода, выполняемый только внутри транзакции вызывающего (MANDATORY).
+ * <p>
+ * Отказ в переводе (нет средств, карта не активна или не найдена, неверный запрос) не помечает общую транзакцию
+ * как rollback-only: откат остается за тем, кто ее начал. Синхронный перевод при отказе откатывает свою транзакцию
+ * целиком, а конвейер {@link TransferPipeline} откатывает только точку сохранения перевода и фиксирует остальную группу
+ * (пометку rollback-only в JPA снять нельзя, поэтому ее не должно быть).
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Transactional(propagation = Propagation.MANDATORY, noRollbackFor = {
+        BadRequestException.class, CardOperationException.class,
+        InsufficientFundsException.class, ResourceNotFoundException.class})
+public @interface TransferStepTransactional {
+}
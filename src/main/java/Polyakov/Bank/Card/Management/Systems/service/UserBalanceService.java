@@ -0,0 +1,28 @@
+package Polyakov.Bank.Card.Management.Systems.service;
+
+import java.util.UUID;
+
+/**
+ * Суммарный баланс пользователя, поддерживаемый приращениями (таблица user_balances).
+ * <p>
+ * Сумму меняют выпуск карты с начальным балансом и удаление карты. Переводы идут только между картами
+ * одного владельца и сумму не меняют, поэтому строку суммы не блокируют.
+ */
+public interface UserBalanceService {
+    /**
+     * Суммарный баланс пользователя в минимальных единицах; 0, если у пользователя еще не было карт.
+     */
+    long getTotal(UUID userId);
+
+    /**
+     * Прибавляет приращение (в минимальных единицах) к суммарному балансу в текущей транзакции.
+     * Вызывается той же транзакцией, что меняет сумму балансов карт пользователя.
+     */
+    void applyDelta(UUID userId, long delta);
+
+    /**
+     * Пересчитывает суммарный баланс по картам пользователя и записывает его (исправление расхождения).
+     * @return Новое значение.
+     */
+    long recalculate(UUID userId);
+}
@@ -2,17 +2,39 @@ package Polyakov.Bank.Card.Management.Systems.service.impl;
 
 import Polyakov.Bank.Card.Management.Systems.service.EncryptionService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
-
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * AES/GCM шифрование номеров карт.
+ * <p>
+ * Экземпляры {@link Cipher} переиспользуются через ограниченный пул: {@code Cipher.getInstance} и расширение ключа
+ * выполняются один раз на экземпляр, а не на каждый вызов. Пул не использует ThreadLocal и synchronized,
+ * поэтому корректно работает и на виртуальных потоках (их число не ограничено, а ThreadLocal не переиспользуется).
+ * Источник энтропии для IV один на весь сервис.
+ * <p>
+ * Ключи образуют связку версий: новые данные шифруются активным ключом ({@code app.encryption.key}
+ * с версией {@code app.encryption.key-version}), а прежние ключи ({@code app.encryption.retired-keys}, формат
+ * {@code "версия:ключ,версия:ключ"}) используются только для чтения. Формат зашифрованных данных:
+ * {@code [MAGIC][версия ключа][IV][шифротекст + тег]}; заголовок из двух байт входит в GCM как AAD,
+ * поэтому подмена версии обнаруживается при проверке тега.
+ * Данные без заголовка (записанные до появления версий) расшифровываются ключом версии {@value #LEGACY_KEY_VERSION}.
+ */
 @Service
 @Slf4j
 public class AesEncryptionService implements EncryptionService {
@@ -20,39 +42,116 @@ public class AesEncryptionService implements EncryptionService {
     private static final String ALGORITHM = "AES/GCM/NoPadding";
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 128;
+    private static final int GCM_TAG_BYTES = GCM_TAG_LENGTH / Byte.SIZE;
+    private static final byte HEADER_MAGIC = (byte) 0xEC;
+    private static final int HEADER_LENGTH = 2;
+    /**
+     * Версия ключа, которым зашифрованы данные без заголовка.
+     */
+    public static final int LEGACY_KEY_VERSION = 1;
+
+    private final Map<Integer, SecretKey> keyRing = new HashMap<>();
+    private final int activeKeyVersion;
+    private final SecretKey activeKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final BlockingQueue<Cipher> cipherPool;
+
+    @Autowired
+    public AesEncryptionService(@Value("${app.encryption.key}") String encryptionKey,
+                                @Value("${app.encryption.key-version:1}") int keyVersion,
+                                @Value("${app.encryption.retired-keys:}") String retiredKeys,
+                                @Value("${app.encryption.cipher-pool-size:32}") int cipherPoolSize) {
+        if (cipherPoolSize <= 0) {
+            throw new IllegalArgumentException("Cipher pool size must be positive.");
+        }
+        this.activeKeyVersion = keyVersion;
+        this.activeKey = addKey(keyVersion, encryptionKey);
+        if (retiredKeys != null && !retiredKeys.isBlank()) {
+            for (String entry : retiredKeys.split(",")) {
+                int separator = entry.indexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Invalid retired key entry. Expected format is version:key.");
+                }
+                addKey(Integer.parseInt(entry.substring(0, separator).trim()), entry.substring(separator + 1).trim());
+            }
+        }
+        this.cipherPool = new ArrayBlockingQueue<>(cipherPoolSize);
+        log.info("AES Encryption Service initialized successfully (active key version: {}, key versions: {}, cipher pool size: {}).",
+                activeKeyVersion, keyRing.keySet(), cipherPoolSize);
+    }
 
-    private final SecretKey secretKey;
+    /**
+     * Сокращенный конструктор для единственного ключа версии {@value #LEGACY_KEY_VERSION}.
+     */
+    public AesEncryptionService(String encryptionKey, int cipherPoolSize) {
+        this(encryptionKey, LEGACY_KEY_VERSION, null, cipherPoolSize);
+    }
 
-    public AesEncryptionService(@Value("${app.encryption.key}") String encryptionKey) {
-        if (encryptionKey == null || encryptionKey.length() != 32) {
-            log.error("Invalid encryption key length. Key must be 32 bytes long. Provided length: {}", encryptionKey != null ? encryptionKey.length() : "null");
+    private SecretKey addKey(int version, String key) {
+        if (version < 1 || version > 255) {
+            throw new IllegalArgumentException("Invalid encryption key version. Version must be between 1 and 255.");
+        }
+        if (key == null || key.length() != 32) {
+            log.error("Invalid encryption key length. Key must be 32 bytes long. Provided length: {}", key != null ? key.length() : "null");
             throw new IllegalArgumentException("Invalid encryption key length. Key must be 32 bytes long.");
         }
-        this.secretKey = new SecretKeySpec(encryptionKey.getBytes(StandardCharsets.UTF_8), "AES");
-        log.info("AES Encryption Service initialized successfully.");
+        SecretKey secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES");
+        if (keyRing.putIfAbsent(version, secretKey) != null) {
+            throw new IllegalArgumentException("Duplicate encryption key version: " + version);
+        }
+        return secretKey;
+    }
+
+    @Override
+    public int getActiveKeyVersion() {
+        return activeKeyVersion;
     }
 
     @Override
     public String encrypt(String data) {
+        byte[] encryptedDataWithIv = encryptToBytes(data);
+        return encryptedDataWithIv != null ? Base64.getEncoder().encodeToString(encryptedDataWithIv) : null;
+    }
+
+    @Override
+    public String decrypt(String encryptedData) {
+        if (encryptedData == null) {
+            return null;
+        }
+        byte[] encryptedDataWithIv;
+        try {
+            encryptedDataWithIv = Base64.getDecoder().decode(encryptedData);
+        } catch (IllegalArgumentException e) {
+            log.error("Decryption failed", e);
+            throw new RuntimeException("Decryption failed", e);
+        }
+        return decryptFromBytes(encryptedDataWithIv);
+    }
+
+    @Override
+    public byte[] encryptToBytes(String data) {
         if (data == null) {
             return null;
         }
         try {
+            byte[] plainBytes = data.getBytes(StandardCharsets.UTF_8);
             byte[] iv = new byte[GCM_IV_LENGTH];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
-
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, gcmParameterSpec);
-
-            byte[] encryptedBytes = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
-
-            byte[] encryptedDataWithIv = new byte[GCM_IV_LENGTH + encryptedBytes.length];
-            System.arraycopy(iv, 0, encryptedDataWithIv, 0, GCM_IV_LENGTH);
-            System.arraycopy(encryptedBytes, 0, encryptedDataWithIv, GCM_IV_LENGTH, encryptedBytes.length);
-
-            return Base64.getEncoder().encodeToString(encryptedDataWithIv);
+            secureRandom.nextBytes(iv);
+
+            Cipher cipher = borrowCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, activeKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+
+            // Заголовок, IV и шифротекст с тегом пишутся в один буфер, без промежуточных массивов
+            int offset = HEADER_LENGTH + GCM_IV_LENGTH;
+            byte[] encryptedDataWithIv = new byte[offset + cipher.getOutputSize(plainBytes.length)];
+            encryptedDataWithIv[0] = HEADER_MAGIC;
+            encryptedDataWithIv[1] = (byte) activeKeyVersion;
+            System.arraycopy(iv, 0, encryptedDataWithIv, HEADER_LENGTH, GCM_IV_LENGTH);
+            cipher.updateAAD(encryptedDataWithIv, 0, HEADER_LENGTH);
+            cipher.doFinal(plainBytes, 0, plainBytes.length, encryptedDataWithIv, offset);
+            releaseCipher(cipher);
+
+            return encryptedDataWithIv;
         } catch (Exception e) {
             log.error("Encryption failed", e);
             throw new RuntimeException("Encryption failed", e);
@@ -60,34 +159,76 @@ public class AesEncryptionService implements EncryptionService {
     }
 
     @Override
-    public String decrypt(String encryptedData) {
-        if (encryptedData == null) {
+    public String decryptFromBytes(byte[] encryptedDataWithIv) {
+        if (encryptedDataWithIv == null) {
             return null;
         }
         try {
-            byte[] encryptedDataWithIv = Base64.getDecoder().decode(encryptedData);
-
-            if (encryptedDataWithIv.length < GCM_IV_LENGTH) {
+            if (encryptedDataWithIv.length < GCM_IV_LENGTH + GCM_TAG_BYTES) {
                 log.error("Invalid encrypted data format (too short).");
                 throw new IllegalArgumentException("Invalid encrypted data format.");
             }
 
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            System.arraycopy(encryptedDataWithIv, 0, iv, 0, GCM_IV_LENGTH);
-
-            byte[] encryptedBytes = new byte[encryptedDataWithIv.length - GCM_IV_LENGTH];
-            System.arraycopy(encryptedDataWithIv, GCM_IV_LENGTH, encryptedBytes, 0, encryptedBytes.length);
-
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmParameterSpec);
-
-            byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
-
-            return new String(decryptedBytes, StandardCharsets.UTF_8);
+            if (hasVersionHeader(encryptedDataWithIv)) {
+                try {
+                    return decryptWithHeader(encryptedDataWithIv);
+                } catch (AEADBadTagException e) {
+                    // Первые байты старых данных без заголовка случайно совпали с заголовком: пробуем старый формат
+                    if (!keyRing.containsKey(LEGACY_KEY_VERSION)) {
+                        throw e;
+                    }
+                }
+            }
+            return decryptLegacy(encryptedDataWithIv);
         } catch (Exception e) {
             log.error("Decryption failed", e);
             throw new RuntimeException("Decryption failed", e);
         }
     }
+
+    private boolean hasVersionHeader(byte[] data) {
+        return data.length >= HEADER_LENGTH + GCM_IV_LENGTH + GCM_TAG_BYTES
+                && data[0] == HEADER_MAGIC
+                && keyRing.containsKey(Byte.toUnsignedInt(data[1]));
+    }
+
+    private String decryptWithHeader(byte[] data) throws GeneralSecurityException {
+        SecretKey key = keyRing.get(Byte.toUnsignedInt(data[1]));
+        Cipher cipher = borrowCipher();
+        // Заголовок, IV и шифротекст читаются прямо из исходного буфера по смещениям
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, data, HEADER_LENGTH, GCM_IV_LENGTH));
+        cipher.updateAAD(data, 0, HEADER_LENGTH);
+        int offset = HEADER_LENGTH + GCM_IV_LENGTH;
+        byte[] decryptedBytes = cipher.doFinal(data, offset, data.length - offset);
+        releaseCipher(cipher);
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    private String decryptLegacy(byte[] data) throws GeneralSecurityException {
+        SecretKey key = keyRing.get(LEGACY_KEY_VERSION);
+        if (key == null) {
+            throw new IllegalArgumentException("Encrypted data has no key version header and legacy key is not configured.");
+        }
+        Cipher cipher = borrowCipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, data, 0, GCM_IV_LENGTH));
+        byte[] decryptedBytes = cipher.doFinal(data, GCM_IV_LENGTH, data.length - GCM_IV_LENGTH);
+        releaseCipher(cipher);
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Берет свободный Cipher из пула или создает новый, если пул пуст.
+     */
+    private Cipher borrowCipher() throws GeneralSecurityException {
+        Cipher cipher = cipherPool.poll();
+        return cipher != null ? cipher : Cipher.getInstance(ALGORITHM);
+    }
+
+    /**
+     * Возвращает Cipher в пул. Вызывается только после успешной операции:
+     * экземпляр, на котором произошла ошибка, отбрасывается. Если пул заполнен, экземпляр также отбрасывается.
+     */
+    private void releaseCipher(Cipher cipher) {
+        cipherPool.offer(cipher);
+    }
 }
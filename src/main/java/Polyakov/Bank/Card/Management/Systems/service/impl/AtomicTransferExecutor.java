@@ -0,0 +1,80 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.exception.CardOperationException;
+import Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException;
+import Polyakov.Bank.Card.Management.Systems.exception.ResourceNotFoundException;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.CardTransferState;
+import Polyakov.Bank.Card.Management.Systems.service.BalanceShardService;
+import Polyakov.Bank.Card.Management.Systems.service.TransferExecutor;
+import Polyakov.Bank.Card.Management.Systems.service.TransferStepTransactional;
+import Polyakov.Bank.Card.Management.Systems.util.UuidOrderUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Перевод двумя условными UPDATE без загрузки сущностей: списание проходит, только если карта
+ * активна, принадлежит пользователю и на ней достаточно средств, зачисление — только на активную карту пользователя.
+ * Проверка и изменение баланса происходят в одном операторе, поэтому параллельные переводы не теряют обновления,
+ * а строки блокируются лишь с момента своего UPDATE до конца транзакции. Обе строки обновляются в порядке
+ * возрастания id в порядке PostgreSQL ({@link UuidOrderUtil}), как и в пакетных переводах ({@code ORDER BY id}),
+ * чтобы встречные переводы (A->B и B->A) не блокировали друг друга взаимно.
+ * Причина отказа выясняется отдельным запросом только если UPDATE не изменил строку.
+ * <p>
+ * Для карт с суббалансами ({@link BalanceShardService}) зачисление меняет случайный суббаланс вместо строки карты,
+ * а при нехватке средств на основном балансе суббалансы сворачиваются в него и списание повторяется (только
+ * если суббалансы у карты включены: свертка блокирует строку карты).
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.transfer.mode", havingValue = "atomic", matchIfMissing = true)
+public class AtomicTransferExecutor implements TransferExecutor {
+
+    private final CardRepository cardRepository;
+    private final BalanceShardService balanceShardService;
+
+    @Override
+    @TransferStepTransactional
+    public void transfer(UUID ownerId, UUID fromCardId, UUID toCardId, long amount) {
+        if (UuidOrderUtil.compare(fromCardId, toCardId) < 0) {
+            debit(fromCardId, ownerId, amount);
+            credit(toCardId, ownerId, amount);
+        } else {
+            credit(toCardId, ownerId, amount);
+            debit(fromCardId, ownerId, amount);
+        }
+    }
+
+    private void debit(UUID cardId, UUID ownerId, long amount) {
+        if (cardRepository.debitIfSufficientFunds(cardId, ownerId, amount, CardStatus.ACTIVE) == 0) {
+            CardTransferState state = findTransferStateOrThrow(cardId, ownerId);
+            if (state.status() != CardStatus.ACTIVE) {
+                throw new CardOperationException("Source card ID: " + cardId + " is not active.");
+            }
+            if (state.balanceShards() > 0
+                    && balanceShardService.foldShards(cardId) > 0
+                    && cardRepository.debitIfSufficientFunds(cardId, ownerId, amount, CardStatus.ACTIVE) == 1) {
+                return;
+            }
+            throw new InsufficientFundsException("Insufficient funds on source card ID: " + cardId);
+        }
+    }
+
+    private void credit(UUID cardId, UUID ownerId, long amount) {
+        // Карта с суббалансами не проходит условие credit; зачисление в суббаланс само проверяет статус и владельца
+        if (cardRepository.credit(cardId, ownerId, amount, CardStatus.ACTIVE) == 0
+                && !balanceShardService.creditShard(cardId, ownerId, amount)) {
+            findTransferStateOrThrow(cardId, ownerId);
+            throw new CardOperationException("Destination card ID: " + cardId + " is not active.");
+        }
+    }
+
+    private CardTransferState findTransferStateOrThrow(UUID cardId, UUID ownerId) {
+        return cardRepository.findTransferStateByIdAndOwnerId(cardId, ownerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId + " for owner " + ownerId));
+    }
+}
@@ -0,0 +1,101 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import Polyakov.Bank.Card.Management.Systems.exception.ResourceNotFoundException;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.repository.CardBalanceShardRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.service.BalanceShardService;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.BALANCE_SHARDS_OUT_OF_RANGE;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.CARD_NOT_FOUND;
+
+/**
+ * Зачисления на карту с суббалансами меняют одну из N строк card_balance_shards, поэтому пропускная способность
+ * зачислений растет с N. Основной баланс карты меняют только списания и свертка; свертка всегда блокирует сначала
+ * строку карты, затем строки суббалансов, а зачисление блокирует только строку суббаланса, поэтому взаимоблокировок
+ * между ними нет.
+ */
+@Service
+@Slf4j
+public class BalanceShardServiceImpl implements BalanceShardService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final CardBalanceShardRepository shardRepository;
+    private final CardRepository cardRepository;
+    private final int maxShards;
+
+    public BalanceShardServiceImpl(CardBalanceShardRepository shardRepository,
+                                   CardRepository cardRepository,
+                                   @Value("${app.balance-shards.max-shards:64}") int maxShards) {
+        this.shardRepository = shardRepository;
+        this.cardRepository = cardRepository;
+        this.maxShards = maxShards;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean creditShard(UUID cardId, UUID ownerId, long amount) {
+        return shardRepository.creditRandomShard(cardId, ownerId, amount) == 1;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long drainShards(UUID cardId) {
+        return shardRepository.drain(cardId);
+    }
+
+    @Override
+    @Transactional
+    public long foldShards(UUID cardId) {
+        if (cardRepository.lockById(cardId).isEmpty()) {
+            return 0;
+        }
+        long drained = shardRepository.drain(cardId);
+        if (drained != 0) {
+            cardRepository.addToBalance(cardId, drained);
+            log.debug("Folded {} from balance shards into card ID: {}", drained, cardId);
+        }
+        return drained;
+    }
+
+    @Override
+    @Transactional
+    public Card configureShards(UUID cardId, int shards) {
+        if (shards < 0 || shards > maxShards) {
+            throw new BadRequestException(BALANCE_SHARDS_OUT_OF_RANGE + maxShards);
+        }
+        Card card = entityManager.find(Card.class, cardId, LockModeType.PESSIMISTIC_WRITE);
+        if (card == null) {
+            throw new ResourceNotFoundException(CARD_NOT_FOUND + cardId);
+        }
+        if (card.getBalanceShards() == shards) {
+            return card;
+        }
+        // Суббалансы удаляются и суммируются одним оператором: отдельный drain пропустил бы зачисление,
+        // еще не зафиксированное в строке с нулевым балансом, и последующее удаление потеряло бы его
+        card.setBalance(MoneyUtil.add(card.getBalance(), shardRepository.deleteShards(cardId)));
+        if (shards > 0) {
+            shardRepository.createShards(cardId, shards);
+        }
+        card.setBalanceShards(shards);
+        // Изменения сущности записываются до чтения суббалансов формулой при обновлении
+        entityManager.flush();
+        entityManager.refresh(card);
+        log.info("Card ID: {} balance shards changed to {}", cardId, shards);
+        return card;
+    }
+}
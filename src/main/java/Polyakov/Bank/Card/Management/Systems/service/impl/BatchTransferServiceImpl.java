@@ -0,0 +1,196 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.aop.RetryOnTransientFailure;
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import Polyakov.Bank.Card.Management.Systems.model.constant.BatchTransferMode;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.BatchTransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BatchTransferResponse;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BatchTransferResult;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.security.SecurityUserDetails;
+import Polyakov.Bank.Card.Management.Systems.service.BalanceShardService;
+import Polyakov.Bank.Card.Management.Systems.service.BatchTransferService;
+import Polyakov.Bank.Card.Management.Systems.service.LedgerService;
+import Polyakov.Bank.Card.Management.Systems.util.AuthenticationHelper;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.BATCH_TRANSFER_ITEM_INCOMPLETE;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.BATCH_TRANSFER_LIMIT_EXCEEDED;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.BATCH_TRANSFER_NOT_APPLIED;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.CARD_NOT_FOUND;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.TRANSFER_AMOUNT_OUT_OF_FORMAT;
+
+/**
+ * Пакетный перевод.
+ * <p>
+ * Текущий пользователь определяется один раз, все карты пакета загружаются одним запросом с блокировкой строк
+ * в порядке возрастания id (lock_timeout как у одиночного перевода). Переводы применяются к сущностям в памяти
+ * в порядке запроса, поэтому каждый следующий видит балансы после предыдущих. Измененные карты и записи журнала
+ * сбрасываются при фиксации пакетами JDBC ({@code hibernate.jdbc.batch_size}).
+ * Пакет выполняется независимо от app.transfer.mode. Строки карт заблокированы, поэтому зачисления идут
+ * в основной баланс; суббалансы карты-источника сворачиваются в него, если основного баланса не хватает.
+ * Элементы пакета не проходят Bean Validation: некорректный перевод получает свой результат с причиной отказа,
+ * а не отклоняет весь запрос.
+ */
+@Service
+@Slf4j
+public class BatchTransferServiceImpl implements BatchTransferService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final CardRepository cardRepository;
+    private final LedgerService ledgerService;
+    private final BalanceShardService balanceShardService;
+    private final AuthenticationHelper authenticationHelper;
+    private final long lockTimeoutMs;
+    private final int maxItems;
+
+    public BatchTransferServiceImpl(CardRepository cardRepository,
+                                    LedgerService ledgerService,
+                                    BalanceShardService balanceShardService,
+                                    AuthenticationHelper authenticationHelper,
+                                    @Value("${app.transfer.lock-timeout-ms:2000}") long lockTimeoutMs,
+                                    @Value("${app.transfer.batch.max-items:1000}") int maxItems) {
+        this.cardRepository = cardRepository;
+        this.ledgerService = ledgerService;
+        this.balanceShardService = balanceShardService;
+        this.authenticationHelper = authenticationHelper;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    @RetryOnTransientFailure
+    @Transactional
+    public BatchTransferResponse transferFunds(BatchTransferRequest request) {
+        List<TransferRequest> transfers = request.getTransfers();
+        // Режим проверен в запросе (@NotNull, по умолчанию PER_ITEM)
+        BatchTransferMode mode = request.getMode();
+        if (transfers.size() > maxItems) {
+            throw new BadRequestException(BATCH_TRANSFER_LIMIT_EXCEEDED + maxItems);
+        }
+        SecurityUserDetails currentUser = authenticationHelper.getCurrentUserDetails();
+        log.info("User {} request to execute {} transfers in batch (mode {})", currentUser.getUsername(), transfers.size(), mode);
+
+        Map<UUID, Card> cards = lockCards(transfers, currentUser.getId());
+        BatchTransferResult[] results = new BatchTransferResult[transfers.size()];
+        int succeeded = 0;
+        for (int index = 0; index < transfers.size(); index++) {
+            TransferRequest transfer = transfers.get(index);
+            String error = validate(transfer, cards);
+            if (error == null) {
+                Card fromCard = cards.get(transfer.getFromCardId());
+                Card toCard = cards.get(transfer.getToCardId());
+                long amount = MoneyUtil.toMinorUnits(transfer.getAmount());
+                fromCard.setBalance(MoneyUtil.subtract(fromCard.getBalance(), amount));
+                toCard.setBalance(MoneyUtil.add(toCard.getBalance(), amount));
+                UUID transferId = ledgerService.recordTransfer(fromCard.getId(), toCard.getId(), amount);
+                results[index] = BatchTransferResult.success(index, transferId);
+                succeeded++;
+            } else if (mode == BatchTransferMode.ALL_OR_NOTHING) {
+                // Откат отменяет и уже примененные в памяти переводы: ни карты, ни журнал не будут записаны
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                log.info("Batch transfer of user {} rolled back: item {} failed: {}", currentUser.getUsername(), index, error);
+                return allOrNothingFailure(mode, transfers.size(), index, error);
+            } else {
+                results[index] = BatchTransferResult.failure(index, error);
+            }
+        }
+
+        log.info("Batch transfer of user {} finished: {} succeeded, {} failed",
+                currentUser.getUsername(), succeeded, transfers.size() - succeeded);
+        return new BatchTransferResponse(mode, transfers.size(), succeeded, transfers.size() - succeeded, Arrays.asList(results));
+    }
+
+    private Map<UUID, Card> lockCards(List<TransferRequest> transfers, UUID ownerId) {
+        Set<UUID> cardIds = new HashSet<>();
+        for (TransferRequest transfer : transfers) {
+            if (transfer != null && transfer.getFromCardId() != null && transfer.getToCardId() != null) {
+                cardIds.add(transfer.getFromCardId());
+                cardIds.add(transfer.getToCardId());
+            }
+        }
+        if (cardIds.isEmpty()) {
+            return Map.of();
+        }
+        // В PostgreSQL FOR UPDATE не принимает таймаут, поэтому он задается для текущей транзакции
+        entityManager.createNativeQuery("SELECT set_config('lock_timeout', :timeout, true)")
+                .setParameter("timeout", lockTimeoutMs + "ms")
+                .getSingleResult();
+        return cardRepository.findAllByIdInAndOwnerIdForUpdate(cardIds, ownerId).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+    }
+
+    /**
+     * Проверяет перевод по текущему (с учетом предыдущих переводов пакета) состоянию карт.
+     *
+     * @return Причина отказа или null, если перевод можно выполнить.
+     */
+    private String validate(TransferRequest transfer, Map<UUID, Card> cards) {
+        if (transfer == null || transfer.getFromCardId() == null || transfer.getToCardId() == null
+                || transfer.getAmount() == null) {
+            return BATCH_TRANSFER_ITEM_INCOMPLETE;
+        }
+        if (transfer.getFromCardId().equals(transfer.getToCardId())) {
+            return "Cannot transfer funds to the same card.";
+        }
+        if (transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Transfer amount must be positive.";
+        }
+        if (!MoneyUtil.isMinorUnitsExact(transfer.getAmount())) {
+            return TRANSFER_AMOUNT_OUT_OF_FORMAT;
+        }
+        long amount = MoneyUtil.toMinorUnits(transfer.getAmount());
+        Card fromCard = cards.get(transfer.getFromCardId());
+        if (fromCard == null) {
+            return CARD_NOT_FOUND + transfer.getFromCardId();
+        }
+        Card toCard = cards.get(transfer.getToCardId());
+        if (toCard == null) {
+            return CARD_NOT_FOUND + transfer.getToCardId();
+        }
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            return "Source card ID: " + fromCard.getId() + " is not active.";
+        }
+        if (toCard.getStatus() != CardStatus.ACTIVE) {
+            return "Destination card ID: " + toCard.getId() + " is not active.";
+        }
+        if (fromCard.getBalance() < amount && fromCard.getBalanceShards() > 0) {
+            fromCard.setBalance(MoneyUtil.add(fromCard.getBalance(), balanceShardService.drainShards(fromCard.getId())));
+        }
+        if (fromCard.getBalance() < amount) {
+            return "Insufficient funds on source card ID: " + fromCard.getId();
+        }
+        return null;
+    }
+
+    private BatchTransferResponse allOrNothingFailure(BatchTransferMode mode, int size, int failedIndex, String error) {
+        List<BatchTransferResult> results = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            results.add(BatchTransferResult.failure(index, index == failedIndex ? error : BATCH_TRANSFER_NOT_APPLIED));
+        }
+        return new BatchTransferResponse(mode, size, 0, size, results);
+    }
+}
@@ -0,0 +1,158 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import Polyakov.Bank.Card.Management.Systems.mapper.CardMapper;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.CreateCardRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BulkCardResult;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.BulkCreateCardsResponse;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.model.entity.User;
+import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.UserRepository;
+import Polyakov.Bank.Card.Management.Systems.service.BlindIndexService;
+import Polyakov.Bank.Card.Management.Systems.service.BulkCardIssuanceService;
+import Polyakov.Bank.Card.Management.Systems.service.CardNumberGeneratorService;
+import Polyakov.Bank.Card.Management.Systems.util.CardMaskingUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.BULK_CARD_INSERT_FAILED;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.BULK_ISSUANCE_LIMIT_EXCEEDED;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.USER_NOT_FOUND_WITH_ID;
+
+/**
+ * Массовый выпуск карт.
+ * <p>
+ * Владельцы загружаются одним запросом, номера генерируются пачкой (уникальность проверяется пачкой),
+ * шифрование и вычисление слепого индекса выполняются параллельно. Вставка идет порциями по {@code chunk-size}
+ * карт, каждая порция в своей транзакции; при {@code hibernate.jdbc.batch_size} и {@code reWriteBatchedInserts}
+ * порция уходит в БД несколькими многострочными INSERT. Если порция не вставилась, ее карты
+ * вставляются по одной, чтобы ошибка затронула только свой элемент.
+ */
+@Service
+@Slf4j
+public class BulkCardIssuanceServiceImpl implements BulkCardIssuanceService {
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final CardNumberGeneratorService cardNumberGeneratorService;
+    private final BlindIndexService blindIndexService;
+    private final CardMapper cardMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public BulkCardIssuanceServiceImpl(CardRepository cardRepository,
+                                       UserRepository userRepository,
+                                       CardNumberGeneratorService cardNumberGeneratorService,
+                                       BlindIndexService blindIndexService,
+                                       CardMapper cardMapper,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.card-number.bulk.chunk-size:500}") int chunkSize,
+                                       @Value("${app.card-number.bulk.max-items:10000}") int maxItems) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.cardNumberGeneratorService = cardNumberGeneratorService;
+        this.blindIndexService = blindIndexService;
+        this.cardMapper = cardMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    public BulkCreateCardsResponse createCards(List<CreateCardRequest> requests) {
+        if (requests.size() > maxItems) {
+            throw new BadRequestException(BULK_ISSUANCE_LIMIT_EXCEEDED + maxItems);
+        }
+        log.info("Admin request to create {} cards in bulk", requests.size());
+        BulkCardResult[] results = new BulkCardResult[requests.size()];
+
+        Set<UUID> userIds = requests.stream().map(CreateCardRequest::getUserId).collect(Collectors.toSet());
+        Map<UUID, User> owners = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Integer> issuable = new ArrayList<>(requests.size());
+        for (int index = 0; index < requests.size(); index++) {
+            UUID userId = requests.get(index).getUserId();
+            if (owners.containsKey(userId)) {
+                issuable.add(index);
+            } else {
+                results[index] = BulkCardResult.failure(index, userId, USER_NOT_FOUND_WITH_ID + userId);
+            }
+        }
+
+        if (!issuable.isEmpty()) {
+            List<String> cardNumbers = cardNumberGeneratorService.generateUniqueCardNumbers(issuable.size());
+            // AES и HMAC — чистые вычисления, поэтому сущности собираются параллельно
+            Card[] cards = new Card[issuable.size()];
+            IntStream.range(0, issuable.size()).parallel().forEach(i -> {
+                CreateCardRequest request = requests.get(issuable.get(i));
+                cards[i] = buildCard(owners.get(request.getUserId()), request.getExpiryDate(), cardNumbers.get(i));
+            });
+
+            for (int from = 0; from < cards.length; from += chunkSize) {
+                int to = Math.min(from + chunkSize, cards.length);
+                insertChunk(requests, issuable.subList(from, to), Arrays.asList(cards).subList(from, to), results);
+            }
+        }
+
+        int created = (int) Arrays.stream(results).filter(BulkCardResult::isSuccess).count();
+        log.info("Bulk card issuance finished: {} created, {} failed", created, results.length - created);
+        return new BulkCreateCardsResponse(results.length, created, results.length - created, Arrays.asList(results));
+    }
+
+    private Card buildCard(User owner, String expiryDate, String cardNumber) {
+        Card card = new Card();
+        card.setOwner(owner);
+        card.setCardNumber(cardNumber);
+        card.setCardNumberHash(blindIndexService.hash(cardNumber));
+        card.setCardNumberLastFour(CardMaskingUtil.lastFourDigits(cardNumber));
+        card.setExpiryDate(expiryDate);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(0);
+        return card;
+    }
+
+    private void insertChunk(List<CreateCardRequest> requests, List<Integer> indexes, List<Card> cards, BulkCardResult[] results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> cardRepository.saveAll(cards));
+            for (int i = 0; i < cards.size(); i++) {
+                int index = indexes.get(i);
+                results[index] = BulkCardResult.success(index, requests.get(index).getUserId(), cardMapper.toDto(cards.get(i)));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Bulk card insert of {} cards failed, retrying them one by one", cards.size(), e);
+            for (int i = 0; i < cards.size(); i++) {
+                insertSingle(requests, indexes.get(i), cards.get(i), results);
+            }
+        }
+    }
+
+    private void insertSingle(List<CreateCardRequest> requests, int index, Card card, BulkCardResult[] results) {
+        UUID userId = requests.get(index).getUserId();
+        // id, присвоенный в откатившейся транзакции, сбрасывается, чтобы карта снова сохранялась как новая
+        card.setId(null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> cardRepository.save(card));
+            results[index] = BulkCardResult.success(index, userId, cardMapper.toDto(card));
+        } catch (RuntimeException e) {
+            log.warn("Bulk card insert failed for item {} (user ID: {})", index, userId, e);
+            results[index] = BulkCardResult.failure(index, userId, BULK_CARD_INSERT_FAILED);
+        }
+    }
+}
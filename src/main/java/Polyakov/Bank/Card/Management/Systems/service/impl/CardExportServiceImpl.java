@@ -0,0 +1,170 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.mapper.CardMapper;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardExportFormat;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card_;
+import Polyakov.Bank.Card.Management.Systems.repository.specification.CardSpecification;
+import Polyakov.Bank.Card.Management.Systems.service.CardExportService;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка читает карты однонаправленным курсором (fetch size JDBC) в порядке id и пишет каждую строку сразу в поток ответа,
+ * поэтому память не зависит от числа карт: в памяти только текущая порция курсора, буфер записи
+ * и не более export-clear-interval сущностей в контексте персистентности, который периодически очищается.
+ */
+@Service
+@Slf4j
+public class CardExportServiceImpl implements CardExportService {
+
+    private static final String CSV_HEADER = "id,maskedCardNumber,ownerEmail,expiryDate,status,balance,balanceShards";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final CardMapper cardMapper;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int clearInterval;
+
+    public CardExportServiceImpl(CardMapper cardMapper,
+                                 ObjectMapper objectMapper,
+                                 @Value("${app.card-export.fetch-size:1000}") int fetchSize,
+                                 @Value("${app.card-export.clear-interval:1000}") int clearInterval) {
+        this.cardMapper = cardMapper;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.clearInterval = clearInterval;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportCards(CardStatus status, String ownerEmail, BigDecimal minBalance, BigDecimal maxBalance,
+                            CardExportFormat format, OutputStream out) throws IOException {
+        log.info("Admin export of cards started. Filters: status={}, ownerEmail={}, minBalance={}, maxBalance={}, format: {}",
+                status, ownerEmail, minBalance, maxBalance, format);
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Card> query = criteriaBuilder.createQuery(Card.class);
+        Root<Card> root = query.from(Card.class);
+        root.fetch(Card_.owner, JoinType.INNER);
+        Predicate predicate = CardSpecification.filterBy(status, ownerEmail, minBalance, maxBalance)
+                .toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(criteriaBuilder.asc(root.get(Card_.id)));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        long exported = 0;
+        try (Stream<Card> cards = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            if (format == CardExportFormat.NDJSON) {
+                exported = writeNdjson(cards.iterator(), writer);
+            } else {
+                exported = writeCsv(cards.iterator(), writer);
+            }
+        } finally {
+            writer.flush();
+        }
+        log.info("Admin export of cards finished: {} card(s) in {} format", exported, format);
+        return exported;
+    }
+
+    private long writeCsv(Iterator<Card> cards, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        while (cards.hasNext()) {
+            Card card = cards.next();
+            writer.write(card.getId().toString());
+            writer.write(',');
+            writer.write(csvField(cardMapper.maskCardNumber(card)));
+            writer.write(',');
+            writer.write(csvField(card.getOwner().getEmail()));
+            writer.write(',');
+            writer.write(card.getExpiryDate());
+            writer.write(',');
+            writer.write(card.getStatus().name());
+            writer.write(',');
+            writer.write(MoneyUtil.toDecimal(card.getTotalBalance()).toPlainString());
+            writer.write(',');
+            writer.write(Integer.toString(card.getBalanceShards()));
+            writer.write('\n');
+            clearPeriodically(++count);
+        }
+        return count;
+    }
+
+    private long writeNdjson(Iterator<Card> cards, Writer writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        while (cards.hasNext()) {
+            Card card = cards.next();
+            generator.writeStartObject();
+            generator.writeStringField("id", card.getId().toString());
+            generator.writeStringField("maskedCardNumber", cardMapper.maskCardNumber(card));
+            generator.writeStringField("ownerEmail", card.getOwner().getEmail());
+            generator.writeStringField("expiryDate", card.getExpiryDate());
+            generator.writeStringField("status", card.getStatus().name());
+            generator.writeNumberField("balance", MoneyUtil.toDecimal(card.getTotalBalance()));
+            generator.writeNumberField("balanceShards", card.getBalanceShards());
+            generator.writeEndObject();
+            clearPeriodically(++count);
+        }
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return count;
+    }
+
+    /**
+     * Отсоединяет уже выгруженные карты и их владельцев, чтобы контекст персистентности не рос вместе с выгрузкой.
+     */
+    private void clearPeriodically(long count) {
+        if (count % clearInterval == 0) {
+            entityManager.clear();
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
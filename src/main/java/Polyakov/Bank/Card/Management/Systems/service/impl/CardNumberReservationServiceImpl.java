@@ -0,0 +1,112 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.model.entity.CardNumberReservation;
+import Polyakov.Bank.Card.Management.Systems.repository.CardNumberReservationRepository;
+import Polyakov.Bank.Card.Management.Systems.service.BlindIndexService;
+import Polyakov.Bank.Card.Management.Systems.service.CardNumberGeneratorService;
+import Polyakov.Bank.Card.Management.Systems.service.CardNumberReservationService;
+import Polyakov.Bank.Card.Management.Systems.service.EncryptionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class CardNumberReservationServiceImpl implements CardNumberReservationService {
+
+    private final CardNumberReservationRepository reservationRepository;
+    private final CardNumberGeneratorService cardNumberGeneratorService;
+    private final EncryptionService encryptionService;
+    private final BlindIndexService blindIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int lowWaterMark;
+    private final int targetSize;
+    private final int refillChunkSize;
+
+    public CardNumberReservationServiceImpl(CardNumberReservationRepository reservationRepository,
+                                            CardNumberGeneratorService cardNumberGeneratorService,
+                                            EncryptionService encryptionService,
+                                            BlindIndexService blindIndexService,
+                                            PlatformTransactionManager transactionManager,
+                                            @Value("${app.card-number.reservation.enabled:true}") boolean enabled,
+                                            @Value("${app.card-number.reservation.low-water-mark:200}") int lowWaterMark,
+                                            @Value("${app.card-number.reservation.target-size:1000}") int targetSize,
+                                            @Value("${app.card-number.reservation.refill-chunk-size:100}") int refillChunkSize) {
+        this.reservationRepository = reservationRepository;
+        this.cardNumberGeneratorService = cardNumberGeneratorService;
+        this.encryptionService = encryptionService;
+        this.blindIndexService = blindIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.lowWaterMark = lowWaterMark;
+        this.targetSize = targetSize;
+        this.refillChunkSize = refillChunkSize;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<String> claim() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        List<CardNumberReservation> reservations = reservationRepository.findAvailableForClaim(PageRequest.of(0, 1));
+        if (reservations.isEmpty()) {
+            log.warn("Card number reservation pool is empty, falling back to synchronous generation");
+            return Optional.empty();
+        }
+        CardNumberReservation reservation = reservations.get(0);
+        reservationRepository.delete(reservation);
+        return Optional.of(encryptionService.decryptFromBytes(reservation.getEncryptedCardNumber()));
+    }
+
+    @Override
+    public int refillIfNeeded() {
+        if (!enabled) {
+            return 0;
+        }
+        long available = reservationRepository.count();
+        if (available >= lowWaterMark) {
+            return 0;
+        }
+        int missing = (int) (targetSize - available);
+        int added = 0;
+        try {
+            while (added < missing) {
+                int chunk = Math.min(refillChunkSize, missing - added);
+                transactionTemplate.executeWithoutResult(status -> reservationRepository.saveAll(generateReservations(chunk)));
+                added += chunk;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Тот же номер одновременно зарезервировал другой экземпляр приложения: порция откатывается целиком,
+            // недостающие номера добавятся при следующей проверке
+            log.warn("Card number reservation chunk rejected as duplicate, refill will continue on the next run", e);
+        }
+        log.info("Card number reservation pool refilled: {} -> {} numbers", available, available + added);
+        return added;
+    }
+
+    private List<CardNumberReservation> generateReservations(int count) {
+        Instant now = Instant.now();
+        List<CardNumberReservation> reservations = new ArrayList<>(count);
+        for (String cardNumber : cardNumberGeneratorService.generateUniqueCardNumbers(count)) {
+            CardNumberReservation reservation = new CardNumberReservation();
+            reservation.setEncryptedCardNumber(encryptionService.encryptToBytes(cardNumber));
+            reservation.setCardNumberHash(blindIndexService.hash(cardNumber));
+            reservation.setCreatedAt(now);
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+}
@@ -1,35 +1,69 @@
 package Polyakov.Bank.Card.Management.Systems.service.impl;
 
+import Polyakov.Bank.Card.Management.Systems.aop.RetryOnTransientFailure;
 import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
 import Polyakov.Bank.Card.Management.Systems.exception.CardOperationException;
-import Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException;
 import Polyakov.Bank.Card.Management.Systems.exception.ResourceNotFoundException;
+import Polyakov.Bank.Card.Management.Systems.exception.TransferPipelineUnavailableException;
 import Polyakov.Bank.Card.Management.Systems.mapper.CardMapper;
 import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
 import Polyakov.Bank.Card.Management.Systems.model.dto.BalanceDto;
 import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.TransferHistoryEntryDto;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.CreateCardRequest;
 import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.CursorPagedResponse;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.PagedResponse;
 import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card_;
+import Polyakov.Bank.Card.Management.Systems.model.entity.LedgerEntry;
 import Polyakov.Bank.Card.Management.Systems.model.entity.User;
+import Polyakov.Bank.Card.Management.Systems.repository.CardCountEstimator;
 import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.LedgerEntryRepository;
 import Polyakov.Bank.Card.Management.Systems.repository.UserRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.specification.CardListCursor;
 import Polyakov.Bank.Card.Management.Systems.repository.specification.CardSpecification;
+import Polyakov.Bank.Card.Management.Systems.security.SecurityUserDetails;
+import Polyakov.Bank.Card.Management.Systems.service.BalanceShardService;
+import Polyakov.Bank.Card.Management.Systems.service.BlindIndexService;
 import Polyakov.Bank.Card.Management.Systems.service.CardNumberGeneratorService;
+import Polyakov.Bank.Card.Management.Systems.service.CardNumberReservationService;
 import Polyakov.Bank.Card.Management.Systems.service.CardService;
+import Polyakov.Bank.Card.Management.Systems.service.TransferExecutor;
+import Polyakov.Bank.Card.Management.Systems.service.TransferPipeline;
+import Polyakov.Bank.Card.Management.Systems.service.TransferProcessingService;
+import Polyakov.Bank.Card.Management.Systems.service.UserBalanceService;
 import Polyakov.Bank.Card.Management.Systems.util.AuthenticationHelper;
+import Polyakov.Bank.Card.Management.Systems.util.CardMaskingUtil;
+import Polyakov.Bank.Card.Management.Systems.util.CursorUtil;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
 
 import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.*;
 
@@ -38,11 +72,27 @@ import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.*;
 @RequiredArgsConstructor
 public class CardServiceImpl implements CardService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // Ключ курсора истории: секунды и наносекунды created_at, затем id записи
+    private static final int HISTORY_CURSOR_LENGTH = Long.BYTES + Integer.BYTES + Long.BYTES;
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final AuthenticationHelper authenticationHelper;
     private final CardNumberGeneratorService cardNumberGeneratorService;
+    private final CardNumberReservationService cardNumberReservationService;
+    private final BlindIndexService blindIndexService;
     private final CardMapper cardMapper;
+    private final TransferProcessingService transferProcessingService;
+    private final Optional<TransferPipeline> transferPipeline;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceShardService balanceShardService;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final CardCountEstimator cardCountEstimator;
+    private final UserBalanceService userBalanceService;
+
+    @Value("${app.transfer.pipeline.await-timeout-ms:10000}")
+    private long pipelineAwaitTimeoutMs;
 
     @Override
     @Transactional
@@ -53,24 +103,30 @@ public class CardServiceImpl implements CardService {
 
         Card card = new Card();
         card.setOwner(owner);
-        String generatedCardNumber = cardNumberGeneratorService.generateUniqueCardNumber();
+        // Номер берется из пула заранее зарезервированных; синхронная генерация только если пул пуст
+        String generatedCardNumber = cardNumberReservationService.claim()
+                .orElseGet(cardNumberGeneratorService::generateUniqueCardNumber);
         card.setCardNumber(generatedCardNumber);
+        card.setCardNumberHash(blindIndexService.hash(generatedCardNumber));
+        card.setCardNumberLastFour(CardMaskingUtil.lastFourDigits(generatedCardNumber));
         card.setExpiryDate(request.getExpiryDate());
         card.setStatus(CardStatus.ACTIVE);
-        card.setBalance(BigDecimal.ZERO);
+        card.setBalance(0);
         Card savedCard = cardRepository.save(card);
+        // Новая карта создается с нулевым балансом и не меняет суммарный баланс владельца
         log.info("Card created successfully with ID: {} for user ID: {}", savedCard.getId(), owner.getId());
         return cardMapper.toDto(savedCard);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<CardDto> getAllCardsFiltered(CardStatus status, String ownerEmail, BigDecimal minBalance, BigDecimal maxBalance, Pageable pageable) {
-        log.debug("Admin request to get filtered cards. Filters: status={}, ownerEmail={}, minBalance={}, maxBalance={}. Pageable: {}",
-                status, ownerEmail, minBalance, maxBalance, pageable);
+    public PagedResponse<CardDto> getAllCardsFiltered(CardStatus status, String ownerEmail, BigDecimal minBalance, BigDecimal maxBalance,
+                                                      Pageable pageable, String cursor, PageTotalMode totalMode) {
+        log.debug("Admin request to get filtered cards. Filters: status={}, ownerEmail={}, minBalance={}, maxBalance={}. Pageable: {}, cursor: {}, total: {}",
+                status, ownerEmail, minBalance, maxBalance, pageable, cursor, totalMode);
         Specification<Card> spec = CardSpecification.filterBy(status, ownerEmail, minBalance, maxBalance);
-        Page<Card> cardPage = cardRepository.findAll(spec, pageable);
-        return cardPage.map(cardMapper::toDto);
+        return findCards(spec, pageable, cursor, totalMode,
+                () -> estimateCardCount(status, ownerEmail, null, minBalance, maxBalance));
     }
 
     @Override
@@ -82,6 +138,7 @@ public class CardServiceImpl implements CardService {
     }
 
     @Override
+    @RetryOnTransientFailure
     @Transactional
     public CardDto updateCardStatusAsAdmin(UUID id, CardStatus newStatus) {
         log.info("Admin request to update status for card ID: {} to {}", id, newStatus);
@@ -107,25 +164,88 @@ public class CardServiceImpl implements CardService {
     }
 
     @Override
+    @RetryOnTransientFailure
+    @Transactional
+    public CardDto updateBalanceShardsAsAdmin(UUID id, int shards) {
+        log.info("Admin request to set balance shards for card ID: {} to {}", id, shards);
+        return cardMapper.toDto(balanceShardService.configureShards(id, shards));
+    }
+
+    @Override
+    @RetryOnTransientFailure
     @Transactional
     public void deleteCardAsAdmin(UUID id) {
         log.warn("Admin request to delete card ID: {}", id);
-        if (!cardRepository.existsById(id)) {
+        // Блокировка строки карты: между чтением баланса и удалением перевод не изменит ее основной баланс
+        if (cardRepository.lockById(id).isEmpty()) {
             throw new ResourceNotFoundException(CARD_NOT_FOUND + id);
         }
-        cardRepository.deleteById(id);
+        Card card = findCardByIdOrThrow(id);
+        userBalanceService.applyDelta(card.getOwner().getId(), Math.negateExact(card.getTotalBalance()));
+        cardRepository.delete(card);
         log.info("Card ID: {} deleted successfully by admin", id);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<CardDto> getCurrentUserCardsFiltered(CardStatus status, BigDecimal minBalance, BigDecimal maxBalance, Pageable pageable) {
+    public PagedResponse<CardDto> getCurrentUserCardsFiltered(CardStatus status, BigDecimal minBalance, BigDecimal maxBalance,
+                                                              Pageable pageable, String cursor, PageTotalMode totalMode) {
         User currentUser = authenticationHelper.getCurrentUser();
-        log.debug("User {} request to get own filtered cards. Filters: status={}, minBalance={}, maxBalance={}. Pageable: {}",
-                currentUser.getEmail(), status, minBalance, maxBalance, pageable);
+        log.debug("User {} request to get own filtered cards. Filters: status={}, minBalance={}, maxBalance={}. Pageable: {}, cursor: {}, total: {}",
+                currentUser.getEmail(), status, minBalance, maxBalance, pageable, cursor, totalMode);
         Specification<Card> spec = CardSpecification.filterBy(status, null, minBalance, maxBalance, currentUser);
-        Page<Card> cardPage = cardRepository.findAll(spec, pageable);
-        return cardPage.map(cardMapper::toDto);
+        return findCards(spec, pageable, cursor, totalMode,
+                () -> estimateCardCount(status, null, currentUser.getId(), minBalance, maxBalance));
+    }
+
+    /**
+     * Без курсора возвращает страницу по номеру (OFFSET), как раньше, и курсор для продолжения списка,
+     * если сортировка его поддерживает (по id или балансу). С курсором продолжает список с позиции последней
+     * карты предыдущей страницы: условие по ключу сортировки вместо OFFSET, без COUNT, поэтому глубокие
+     * страницы не медленнее первой. Сортировка берется из курсора, номер страницы из pageable не используется.
+     * <p>
+     * Общее количество карт для страницы по номеру считается отдельным COUNT(*) только в режиме EXACT (по умолчанию).
+     * В режимах NONE и ESTIMATE выбирается на одну карту больше размера страницы (Slice), а в ESTIMATE количество
+     * оценивается планировщиком по статистике без подсчета.
+     */
+    private PagedResponse<CardDto> findCards(Specification<Card> spec, Pageable pageable, String cursor,
+                                             PageTotalMode totalMode, LongSupplier estimatedTotal) {
+        if (cursor == null) {
+            Optional<Sort> keysetSort = CardListCursor.keysetSort(pageable.getSort());
+            Pageable pageRequest = keysetSort
+                    .map(sort -> (Pageable) PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort))
+                    .orElse(pageable);
+            PageTotalMode mode = totalMode != null ? totalMode : PageTotalMode.EXACT;
+            Slice<Card> cardPage = mode == PageTotalMode.EXACT
+                    ? cardRepository.findAll(spec, pageRequest)
+                    : cardRepository.findBy(spec, query -> query.project(Card_.OWNER).slice(pageRequest));
+            PagedResponse<CardDto> response = switch (mode) {
+                case EXACT -> PagedResponse.fromPage(((Page<Card>) cardPage).map(cardMapper::toDto));
+                case ESTIMATE -> PagedResponse.fromSlice(cardPage.map(cardMapper::toDto), estimatedTotal.getAsLong());
+                case NONE -> PagedResponse.fromSlice(cardPage.map(cardMapper::toDto));
+            };
+            if (cardPage.hasNext() && keysetSort.isPresent()) {
+                Card last = cardPage.getContent().get(cardPage.getNumberOfElements() - 1);
+                response.setNextCursor(CardListCursor.after(last, keysetSort.get()).encode());
+            }
+            return response;
+        }
+
+        CardListCursor after = CardListCursor.decode(cursor);
+        int size = pageable.getPageSize();
+        // На одну карту больше размера страницы: лишняя только показывает, что следующая страница есть
+        List<Card> rows = cardRepository.findBy(spec.and(CardSpecification.after(after)),
+                query -> query.sortBy(after.sort()).limit(size + 1).project(Card_.OWNER).all());
+        boolean last = rows.size() <= size;
+        List<Card> content = last ? rows : rows.subList(0, size);
+        String nextCursor = last ? null : CardListCursor.after(content.get(size - 1), after.sort()).encode();
+        return PagedResponse.fromCursor(content.stream().map(cardMapper::toDto).toList(), size, nextCursor);
+    }
+
+    private long estimateCardCount(CardStatus status, String ownerEmail, UUID ownerId, BigDecimal minBalance, BigDecimal maxBalance) {
+        return cardCountEstimator.estimate(status, ownerEmail, ownerId,
+                minBalance != null ? MoneyUtil.toMinorUnitsCeiling(minBalance) : null,
+                maxBalance != null ? MoneyUtil.toMinorUnitsFloor(maxBalance) : null);
     }
 
     @Override
@@ -138,6 +258,7 @@ public class CardServiceImpl implements CardService {
     }
 
     @Override
+    @RetryOnTransientFailure
     @Transactional
     public CardDto requestBlockCard(UUID id) {
         User currentUser = authenticationHelper.getCurrentUser();
@@ -159,16 +280,26 @@ public class CardServiceImpl implements CardService {
         return cardMapper.toDto(updatedCard);
     }
 
+    /**
+     * Балансы изменяет {@link TransferExecutor}, выбранный параметром app.transfer.mode: atomic (условные UPDATE,
+     * по умолчанию) или pessimistic (SELECT ... FOR UPDATE в порядке возрастания id). Обе ноги перевода записываются
+     * в журнал в той же транзакции. Если передан ключ идемпотентности, повтор уже выполненного перевода завершается
+     * без обращения к картам.
+     * <p>
+     * При включенном конвейере (app.transfer.pipeline.enabled) перевод выполняет писатель раздела владельца вместе
+     * с другими переводами этого раздела в одной транзакции, а поток запроса ждет фиксации. Иначе перевод выполняется
+     * в собственной транзакции; временные сбои блокировок и конфликты версий повторяются в новой транзакции.
+     */
     @Override
-    @Transactional
-    public void transferFunds(TransferRequest request) {
-        User currentUser = authenticationHelper.getCurrentUser();
+    @RetryOnTransientFailure
+    public void transferFunds(TransferRequest request, String idempotencyKey) {
+        SecurityUserDetails currentUser = authenticationHelper.getCurrentUserDetails();
         UUID fromCardId = request.getFromCardId();
         UUID toCardId = request.getToCardId();
         BigDecimal amount = request.getAmount();
 
         log.info("User {} request to transfer {} from card ID: {} to card ID: {}",
-                currentUser.getEmail(), amount, fromCardId, toCardId);
+                currentUser.getUsername(), amount, fromCardId, toCardId);
 
         Objects.requireNonNull(fromCardId, "From card ID cannot be null");
         Objects.requireNonNull(toCardId, "To card ID cannot be null");
@@ -180,29 +311,82 @@ public class CardServiceImpl implements CardService {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new BadRequestException("Transfer amount must be positive.");
         }
+        if (!MoneyUtil.isMinorUnitsExact(amount)) {
+            throw new BadRequestException(TRANSFER_AMOUNT_OUT_OF_FORMAT);
+        }
 
-        Card fromCard = findCardByIdAndOwnerOrThrow(fromCardId, currentUser);
-        Card toCard = findCardByIdAndOwnerOrThrow(toCardId, currentUser);
+        UUID transferId = transferPipeline.isPresent()
+                ? awaitPipeline(transferPipeline.get().submit(currentUser.getId(), request, idempotencyKey))
+                : transactionTemplate.execute(status ->
+                        transferProcessingService.execute(currentUser.getId(), request, idempotencyKey));
 
+        log.info("Transfer {} successful for user {}: {} transferred from card {} to card {}",
+                transferId, currentUser.getUsername(), amount, fromCardId, toCardId);
+    }
 
-        if (fromCard.getStatus() != CardStatus.ACTIVE) {
-            throw new CardOperationException("Source card ID: " + fromCardId + " is not active.");
-        }
-        if (toCard.getStatus() != CardStatus.ACTIVE) {
-            throw new CardOperationException("Destination card ID: " + toCardId + " is not active.");
+    /**
+     * Ждет фиксации перевода, отправленного в конвейер, и пробрасывает исключение перевода как есть.
+     * По таймауту перевод отменяется, если писатель его еще не взял, — тогда он не выполнится, и повтор запроса безопасен
+     * даже без Idempotency-Key. Если перевод уже выполняется, ожидание продолжается до его исхода.
+     */
+    private UUID awaitPipeline(CompletableFuture<UUID> result) {
+        try {
+            try {
+                return result.get(pipelineAwaitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (result.cancel(false)) {
+                    throw new TransferPipelineUnavailableException(TRANSFER_PIPELINE_TIMEOUT);
+                }
+                return result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferPipelineUnavailableException(result.cancel(false)
+                    ? TRANSFER_PIPELINE_TIMEOUT : TRANSFER_PIPELINE_OUTCOME_UNKNOWN);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
         }
+    }
 
-        if (fromCard.getBalance().compareTo(amount) < 0) {
-            throw new InsufficientFundsException("Insufficient funds on source card ID: " + fromCardId);
+    /**
+     * История читается из журнала keyset-пагинацией по (card_id, created_at, id): курсор хранит позицию последней
+     * записи страницы, и следующая страница продолжает обход индекса с нее без OFFSET. Выбирается на одну запись
+     * больше размера страницы, чтобы узнать о следующей странице без COUNT.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<TransferHistoryEntryDto> getCurrentUserCardHistory(UUID id, String cursor, int size) {
+        SecurityUserDetails currentUser = authenticationHelper.getCurrentUserDetails();
+        log.debug("User {} request for history of card ID: {}, cursor: {}", currentUser.getUsername(), id, cursor);
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new BadRequestException(PAGE_SIZE_OUT_OF_RANGE + MAX_HISTORY_PAGE_SIZE);
+        }
+        if (cardRepository.findStatusByIdAndOwnerId(id, currentUser.getId()).isEmpty()) {
+            throw new ResourceNotFoundException(CARD_NOT_FOUND + id);
         }
 
-        fromCard.setBalance(fromCard.getBalance().subtract(amount));
-        toCard.setBalance(toCard.getBalance().add(amount));
-
-        cardRepository.saveAll(List.of(fromCard, toCard));
+        List<LedgerEntry> rows;
+        if (cursor == null) {
+            rows = ledgerEntryRepository.findCardHistory(id, size + 1);
+        } else {
+            ByteBuffer key = CursorUtil.decode(cursor, HISTORY_CURSOR_LENGTH);
+            Instant beforeCreatedAt = Instant.ofEpochSecond(key.getLong(), key.getInt());
+            rows = ledgerEntryRepository.findCardHistoryBefore(id, beforeCreatedAt, key.getLong(), size + 1);
+        }
 
-        log.info("Transfer successful for user {}: {} transferred from card {} to card {}",
-                currentUser.getEmail(), amount, fromCardId, toCardId);
+        CursorPagedResponse<LedgerEntry> page = CursorPagedResponse.fromRows(rows, size, last -> CursorUtil.encode(
+                ByteBuffer.allocate(HISTORY_CURSOR_LENGTH)
+                        .putLong(last.getCreatedAt().getEpochSecond())
+                        .putInt(last.getCreatedAt().getNano())
+                        .putLong(last.getId())));
+        List<TransferHistoryEntryDto> content = page.getContent().stream()
+                .map(entry -> new TransferHistoryEntryDto(entry.getTransferId(), entry.getEntryType(),
+                        entry.getCounterpartyCardId(), MoneyUtil.toDecimal(entry.getAmount()), entry.getCreatedAt()))
+                .toList();
+        return new CursorPagedResponse<>(content, size, page.getNextCursor(), page.isLast());
     }
 
     @Override
@@ -211,15 +395,14 @@ public class CardServiceImpl implements CardService {
         User currentUser = authenticationHelper.getCurrentUser();
         log.debug("User {} request for balance of card ID: {}", currentUser.getEmail(), id);
         Card card = findCardByIdAndOwnerOrThrow(id, currentUser);
-        return new BalanceDto(card.getBalance());
+        return new BalanceDto(MoneyUtil.toDecimal(card.getTotalBalance()));
     }
 
     @Override
     @Transactional(readOnly = true)
     public BalanceDto getCurrentUserTotalBalance() {
-        User currentUser = authenticationHelper.getCurrentUser();
-        BigDecimal totalBalance = cardRepository.getSumBalanceByOwner(currentUser);
-        return new BalanceDto(totalBalance);
+        UUID currentUserId = authenticationHelper.getCurrentUserDetails().getId();
+        return new BalanceDto(MoneyUtil.toDecimal(userBalanceService.getTotal(currentUserId)));
     }
 
     private Card findCardByIdOrThrow(UUID id) {
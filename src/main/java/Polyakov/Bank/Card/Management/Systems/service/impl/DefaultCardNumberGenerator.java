@@ -1,39 +1,51 @@
 package Polyakov.Bank.Card.Management.Systems.service.impl;
 
-import Polyakov.Bank.Card.Management.Systems.converter.CardNumberConverter;
+import Polyakov.Bank.Card.Management.Systems.repository.CardNumberReservationRepository;
 import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.service.BlindIndexService;
 import Polyakov.Bank.Card.Management.Systems.service.CardNumberGeneratorService;
 import Polyakov.Bank.Card.Management.Systems.util.LuhnUtil;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.COULD_NOT_GENERATE_UNIQUE_CARD_NUMBER;
 
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.card-number.generator", havingValue = "random", matchIfMissing = true)
 public class DefaultCardNumberGenerator implements CardNumberGeneratorService {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultCardNumberGenerator.class);
     private static final int CARD_NUMBER_LENGTH = 16;
     private static final int MAX_GENERATION_ATTEMPTS = 10;
+    private static final int UNIQUENESS_CHECK_BATCH_SIZE = 1000;
 
     private final SecureRandom random = new SecureRandom();
     private final CardRepository cardRepository;
-    private final CardNumberConverter cardNumberConverter;
+    private final CardNumberReservationRepository reservationRepository;
+    private final BlindIndexService blindIndexService;
 
     @Override
     public String generateUniqueCardNumber() {
         for (int attempt = 0; attempt < MAX_GENERATION_ATTEMPTS; attempt++) {
             String cardNumber = generateLuhnValidNumber();
-            String encryptedCardNumber = cardNumberConverter.convertToDatabaseColumn(cardNumber);
 
-            if (!cardRepository.existsByEncryptedCardNumber(encryptedCardNumber)) {
+            byte[] cardNumberHash = blindIndexService.hash(cardNumber);
+            // Номер не должен совпадать ни с выпущенной картой, ни с номером, зарезервированным в пуле
+            if (!cardRepository.existsByCardNumberHash(cardNumberHash)
+                    && !reservationRepository.existsByCardNumberHash(cardNumberHash)) {
                 logger.info("Generated unique card number on attempt {}", attempt + 1);
                 return cardNumber;
             }
@@ -43,14 +55,56 @@ public class DefaultCardNumberGenerator implements CardNumberGeneratorService {
         throw new RuntimeException(COULD_NOT_GENERATE_UNIQUE_CARD_NUMBER);
     }
 
-    private String generateLuhnValidNumber() {
-        String prefix = IntStream.range(0, CARD_NUMBER_LENGTH - 1)
-                .map(i -> random.nextInt(10))
-                .mapToObj(String::valueOf)
-                .collect(Collectors.joining());
+    /**
+     * Генерирует кандидатов пачкой и проверяет их уникальность одним запросом на каждые
+     * {@value #UNIQUENESS_CHECK_BATCH_SIZE} номеров вместо двух запросов на номер.
+     */
+    @Override
+    public List<String> generateUniqueCardNumbers(int count) {
+        // Ключ — слепой индекс номера (ByteBuffer сравнивает содержимое массива)
+        Map<ByteBuffer, String> accepted = new LinkedHashMap<>(count * 2);
+        for (int attempt = 0; attempt < MAX_GENERATION_ATTEMPTS && accepted.size() < count; attempt++) {
+            Map<ByteBuffer, String> candidates = new LinkedHashMap<>();
+            while (candidates.size() < count - accepted.size()) {
+                String cardNumber = generateLuhnValidNumber();
+                ByteBuffer cardNumberHash = ByteBuffer.wrap(blindIndexService.hash(cardNumber));
+                if (!accepted.containsKey(cardNumberHash)) {
+                    candidates.put(cardNumberHash, cardNumber);
+                }
+            }
+            Set<ByteBuffer> taken = findTakenHashes(new ArrayList<>(candidates.keySet()));
+            if (!taken.isEmpty()) {
+                logger.warn("Generated card number collisions detected on attempt {}: {}. Retrying...", attempt + 1, taken.size());
+            }
+            candidates.forEach((cardNumberHash, cardNumber) -> {
+                if (!taken.contains(cardNumberHash)) {
+                    accepted.put(cardNumberHash, cardNumber);
+                }
+            });
+        }
+        if (accepted.size() < count) {
+            logger.error("Failed to generate {} unique card numbers after {} attempts.", count, MAX_GENERATION_ATTEMPTS);
+            throw new RuntimeException(COULD_NOT_GENERATE_UNIQUE_CARD_NUMBER);
+        }
+        return new ArrayList<>(accepted.values());
+    }
 
-        String checkDigit = LuhnUtil.calculateCheckDigit(prefix);
+    private Set<ByteBuffer> findTakenHashes(List<ByteBuffer> candidateHashes) {
+        Set<ByteBuffer> taken = new HashSet<>();
+        for (int from = 0; from < candidateHashes.size(); from += UNIQUENESS_CHECK_BATCH_SIZE) {
+            List<byte[]> batch = candidateHashes.subList(from, Math.min(from + UNIQUENESS_CHECK_BATCH_SIZE, candidateHashes.size()))
+                    .stream()
+                    .map(ByteBuffer::array)
+                    .toList();
+            cardRepository.findExistingCardNumberHashes(batch).forEach(hash -> taken.add(ByteBuffer.wrap(hash)));
+            reservationRepository.findExistingCardNumberHashes(batch).forEach(hash -> taken.add(ByteBuffer.wrap(hash)));
+        }
+        return taken;
+    }
 
-        return prefix + checkDigit;
+    private String generateLuhnValidNumber() {
+        char[] digits = new char[CARD_NUMBER_LENGTH];
+        LuhnUtil.fillRandomValidNumber(digits, random);
+        return new String(digits);
     }
 }
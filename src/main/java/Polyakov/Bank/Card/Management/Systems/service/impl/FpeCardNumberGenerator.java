@@ -0,0 +1,107 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.repository.CardNumberSequenceRepository;
+import Polyakov.Bank.Card.Management.Systems.service.CardNumberGeneratorService;
+import Polyakov.Bank.Card.Management.Systems.util.FormatPreservingPermutation;
+import Polyakov.Bank.Card.Management.Systems.util.LuhnUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.CARD_NUMBER_SPACE_EXHAUSTED_FOR_BIN;
+
+/**
+ * Генератор номеров без проверки уникальности в БД: номер = BIN + перестановка(порядковый номер) + контрольная цифра Луна.
+ * <p>
+ * Порядковые номера монотонно растут и не повторяются, а ключевая перестановка биективна, поэтому номера уникальны
+ * по построению и при этом не выдают порядок выпуска. Значения последовательности выделяются блоками
+ * ({@code block-size} за один запрос к БД); неиспользованный остаток блока при перезапуске теряется, что дает пропуски,
+ * но не повторы. Ключ перестановки и BIN после начала выпуска менять нельзя: это нарушит гарантию уникальности.
+ * Номера, ранее выданные случайным генератором в том же BIN, по-прежнему защищены уникальным индексом card_number_hash.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.card-number.generator", havingValue = "fpe")
+public class FpeCardNumberGenerator implements CardNumberGeneratorService {
+
+    private static final int CARD_NUMBER_LENGTH = 16;
+    private static final int MIN_KEY_LENGTH = 32;
+
+    private final CardNumberSequenceRepository sequenceRepository;
+    private final TransactionTemplate allocationTransaction;
+    private final FormatPreservingPermutation permutation;
+    private final char[] bin;
+    private final String binValue;
+    private final int blockSize;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long nextValue;
+    private long blockEnd;
+
+    public FpeCardNumberGenerator(CardNumberSequenceRepository sequenceRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.card-number.fpe.bin}") String bin,
+                                  @Value("${app.card-number.fpe.key}") String key,
+                                  @Value("${app.card-number.fpe.block-size:1000}") int blockSize) {
+        if (bin == null || !bin.matches("\\d{4,10}")) {
+            throw new IllegalArgumentException("Invalid BIN. BIN must contain from 4 to 10 digits.");
+        }
+        if (key == null || key.length() < MIN_KEY_LENGTH) {
+            throw new IllegalArgumentException("Invalid card number permutation key length. Key must be at least " + MIN_KEY_LENGTH + " bytes long.");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Card number sequence block size must be positive.");
+        }
+        this.sequenceRepository = sequenceRepository;
+        // Блок фиксируется в собственной транзакции, даже если транзакция создания карты затем откатится
+        this.allocationTransaction = new TransactionTemplate(transactionManager);
+        this.allocationTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.binValue = bin;
+        this.bin = bin.toCharArray();
+        this.blockSize = blockSize;
+        long domainSize = (long) Math.pow(10, CARD_NUMBER_LENGTH - 1 - bin.length());
+        this.permutation = new FormatPreservingPermutation(key.getBytes(StandardCharsets.UTF_8), domainSize);
+        log.info("FPE card number generator initialized (BIN: {}, {} numbers available per BIN, block size: {}).",
+                bin, domainSize, blockSize);
+    }
+
+    @Override
+    public String generateUniqueCardNumber() {
+        long accountNumber = permutation.permute(nextSequenceValue());
+
+        char[] digits = new char[CARD_NUMBER_LENGTH];
+        System.arraycopy(bin, 0, digits, 0, bin.length);
+        for (int i = CARD_NUMBER_LENGTH - 2; i >= bin.length; i--) {
+            digits[i] = (char) ('0' + accountNumber % 10);
+            accountNumber /= 10;
+        }
+        digits[CARD_NUMBER_LENGTH - 1] = (char) ('0' + LuhnUtil.calculateCheckDigit(digits, 0, CARD_NUMBER_LENGTH - 1));
+        return new String(digits);
+    }
+
+    private long nextSequenceValue() {
+        lock.lock();
+        try {
+            if (nextValue >= blockEnd) {
+                Long end = allocationTransaction.execute(status -> sequenceRepository.allocateBlock(binValue, blockSize));
+                blockEnd = end;
+                nextValue = end - blockSize;
+                log.debug("Allocated card number sequence block [{}, {}) for BIN {}", nextValue, blockEnd, binValue);
+            }
+            if (nextValue >= permutation.getDomainSize()) {
+                log.error("Card number space is exhausted for BIN {}", binValue);
+                throw new IllegalStateException(CARD_NUMBER_SPACE_EXHAUSTED_FOR_BIN + binValue);
+            }
+            return nextValue++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
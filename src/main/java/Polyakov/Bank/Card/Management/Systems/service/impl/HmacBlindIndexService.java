@@ -0,0 +1,53 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.service.BlindIndexService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Слепой индекс на основе HMAC-SHA256.
+ * Ключ отделен от ключа шифрования, чтобы компрометация индекса не раскрывала шифротекст и наоборот.
+ */
+@Service
+@Slf4j
+public class HmacBlindIndexService implements BlindIndexService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_LENGTH = 32;
+
+    private final Mac prototype;
+
+    public HmacBlindIndexService(@Value("${app.encryption.blind-index-key}") String blindIndexKey) {
+        if (blindIndexKey == null || blindIndexKey.length() < MIN_KEY_LENGTH) {
+            log.error("Invalid blind index key length. Key must be at least {} bytes long.", MIN_KEY_LENGTH);
+            throw new IllegalArgumentException("Invalid blind index key length. Key must be at least " + MIN_KEY_LENGTH + " bytes long.");
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(blindIndexKey.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to initialize blind index HMAC", e);
+        }
+        log.info("HMAC Blind Index Service initialized successfully.");
+    }
+
+    @Override
+    public byte[] hash(String data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            // Клон уже инициализированного Mac не пересчитывает ключ и безопасен для параллельного использования
+            Mac mac = (Mac) prototype.clone();
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (CloneNotSupportedException e) {
+            log.error("Blind index calculation failed", e);
+            throw new RuntimeException("Blind index calculation failed", e);
+        }
+    }
+}
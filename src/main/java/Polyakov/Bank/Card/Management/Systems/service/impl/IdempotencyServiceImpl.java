@@ -0,0 +1,148 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.entity.IdempotencyKey;
+import Polyakov.Bank.Card.Management.Systems.model.entity.IdempotencyKeyId;
+import Polyakov.Bank.Card.Management.Systems.repository.IdempotencyKeyRepository;
+import Polyakov.Bank.Card.Management.Systems.service.IdempotencyService;
+import Polyakov.Bank.Card.Management.Systems.service.TransferStepTransactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.IDEMPOTENCY_KEY_REUSED;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.IDEMPOTENCY_KEY_TOO_LONG;
+
+/**
+ * Ключи хранятся в idempotency_keys вместе с ID выполненного перевода. Строка ключа вставляется в той же транзакции,
+ * что и сам перевод: при откате (ошибка перевода) ключ не сохраняется, и повтор выполняется заново.
+ * <p>
+ * Перед таблицей стоит ограниченный LRU-кэш ({@code app.idempotency.cache-size}) результатов зафиксированных
+ * переводов: повтор, попавший в кэш, отвечает без обращения к БД. Кэш заполняется только после фиксации транзакции,
+ * поэтому в нем никогда не оказывается результат откатившегося перевода. Кэш локален для экземпляра приложения;
+ * промах кэша обрабатывается таблицей, поэтому корректность от него не зависит.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<IdempotencyKeyId, CompletedTransfer> completedTransfers;
+    private final Duration ttl;
+    private final int purgeBatchSize;
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository idempotencyKeyRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.idempotency.ttl-ms:86400000}") long ttlMs,
+                                  @Value("${app.idempotency.cache-size:10000}") int cacheSize,
+                                  @Value("${app.idempotency.purge.batch-size:1000}") int purgeBatchSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.purgeBatchSize = purgeBatchSize;
+        this.completedTransfers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<IdempotencyKeyId, CompletedTransfer> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Override
+    @TransferStepTransactional
+    public Optional<UUID> findOrClaimTransfer(UUID ownerId, String key, TransferRequest request) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(IDEMPOTENCY_KEY_TOO_LONG + MAX_KEY_LENGTH);
+        }
+        IdempotencyKeyId id = new IdempotencyKeyId(ownerId, key);
+        byte[] requestHash = hash(request);
+        Instant now = Instant.now();
+
+        CompletedTransfer cached = completedTransfers.get(id);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return Optional.of(replay(id, cached, requestHash));
+        }
+
+        if (idempotencyKeyRepository.claim(ownerId, key, requestHash, now, now.plus(ttl)) == 1) {
+            return Optional.empty();
+        }
+        // Ключ использован и зафиксирован: если его занимала параллельная транзакция, claim дождался ее фиксации
+        IdempotencyKey existing = idempotencyKeyRepository.findById(id).orElseThrow();
+        CompletedTransfer completed = new CompletedTransfer(existing.getRequestHash(), existing.getTransferId(), existing.getExpiresAt());
+        completedTransfers.put(id, completed);
+        return Optional.of(replay(id, completed, requestHash));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void completeTransfer(UUID ownerId, String key, TransferRequest request, UUID transferId) {
+        idempotencyKeyRepository.recordTransfer(ownerId, key, transferId);
+        IdempotencyKeyId id = new IdempotencyKeyId(ownerId, key);
+        CompletedTransfer completed = new CompletedTransfer(hash(request), transferId, Instant.now().plus(ttl));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                completedTransfers.put(id, completed);
+            }
+        });
+    }
+
+    @Override
+    public int purgeExpired() {
+        Instant now = Instant.now();
+        completedTransfers.values().removeIf(completed -> !completed.expiresAt().isAfter(now));
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteExpiredBatch(now, purgeBatchSize));
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        return purged;
+    }
+
+    private UUID replay(IdempotencyKeyId id, CompletedTransfer completed, byte[] requestHash) {
+        if (!Arrays.equals(completed.requestHash(), requestHash)) {
+            throw new BadRequestException(IDEMPOTENCY_KEY_REUSED);
+        }
+        log.info("Idempotent replay of transfer {} for key {} of owner {}", completed.transferId(), id.getKey(), id.getOwnerId());
+        return completed.transferId();
+    }
+
+    /**
+     * Хэш параметров перевода; сумма нормализуется, чтобы 100, 100.0 и 100.00 считались одним запросом.
+     */
+    private byte[] hash(TransferRequest request) {
+        String canonical = request.getFromCardId() + "|" + request.getToCardId() + "|"
+                + request.getAmount().stripTrailingZeros().toPlainString();
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record CompletedTransfer(byte[] requestHash, UUID transferId, Instant expiresAt) {
+    }
+}
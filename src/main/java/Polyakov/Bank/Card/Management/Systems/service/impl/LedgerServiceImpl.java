@@ -0,0 +1,34 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.model.constant.LedgerEntryType;
+import Polyakov.Bank.Card.Management.Systems.model.entity.LedgerEntry;
+import Polyakov.Bank.Card.Management.Systems.repository.LedgerEntryRepository;
+import Polyakov.Bank.Card.Management.Systems.service.LedgerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Записи сохраняются вместе с изменением балансов в одной транзакции, поэтому журнал и балансы карт
+ * не расходятся при откате. Обе записи попадают в один пакет JDBC при сбросе контекста.
+ */
+@Service
+@RequiredArgsConstructor
+public class LedgerServiceImpl implements LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public UUID recordTransfer(UUID fromCardId, UUID toCardId, long amount) {
+        UUID transferId = UUID.randomUUID();
+        ledgerEntryRepository.saveAll(List.of(
+                new LedgerEntry(fromCardId, toCardId, transferId, LedgerEntryType.TRANSFER_DEBIT, -amount),
+                new LedgerEntry(toCardId, fromCardId, transferId, LedgerEntryType.TRANSFER_CREDIT, amount)));
+        return transferId;
+    }
+}
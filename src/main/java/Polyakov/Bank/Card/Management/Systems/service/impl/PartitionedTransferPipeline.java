@@ -0,0 +1,264 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import Polyakov.Bank.Card.Management.Systems.exception.CardOperationException;
+import Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException;
+import Polyakov.Bank.Card.Management.Systems.exception.ResourceNotFoundException;
+import Polyakov.Bank.Card.Management.Systems.exception.TransferPipelineUnavailableException;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.service.TransferPipeline;
+import Polyakov.Bank.Card.Management.Systems.service.TransferProcessingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.TRANSFER_PIPELINE_QUEUE_FULL;
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.TRANSFER_PIPELINE_STOPPED;
+
+/**
+ * Конвейер переводов из N разделов, у каждого раздела ограниченная очередь и один поток-писатель.
+ * <p>
+ * Раздел выбирается по владельцу карт: обе карты перевода принадлежат одному пользователю, поэтому все переводы,
+ * затрагивающие одну карту, выполняет один писатель, и писатели не конкурируют за строки карт между собой.
+ * Писатель забирает из очереди до {@code max-batch-size} переводов и выполняет их в одной транзакции (групповая
+ * фиксация: одна фиксация и один сброс журнала БД на группу). Каждый перевод группы выполняется в точке сохранения,
+ * поэтому ошибка перевода (нет средств, карта не активна) откатывает только его. Точка сохранения ставится напрямую
+ * через JDBC-соединение транзакции: HibernateJpaDialect не поддерживает вложенные транзакции (NESTED), а шаги перевода
+ * ({@link Polyakov.Bank.Card.Management.Systems.service.TransferStepTransactional}) при отказе не помечают группу
+ * как rollback-only. Если же не удалась сама группа
+ * (таймаут блокировки, ошибка фиксации), она откатывается целиком и переводы выполняются по одному в отдельных
+ * транзакциях. Future каждого перевода завершается только после фиксации транзакции, в которой он выполнен.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.transfer.pipeline.enabled", havingValue = "true")
+public class PartitionedTransferPipeline implements TransferPipeline {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransferProcessingService transferProcessingService;
+    private final TransactionTemplate groupTransaction;
+    private final TransactionTemplate itemTransaction;
+    private final DistributionSummary groupSizeSummary;
+    private final Counter groupFallbackCounter;
+    private final List<BlockingQueue<PendingTransfer>> queues;
+    private final List<Thread> writers;
+    private final int maxBatchSize;
+    private volatile boolean running;
+
+    public PartitionedTransferPipeline(TransferProcessingService transferProcessingService,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.transfer.pipeline.partitions:8}") int partitions,
+                                       @Value("${app.transfer.pipeline.queue-capacity:10000}") int queueCapacity,
+                                       @Value("${app.transfer.pipeline.max-batch-size:200}") int maxBatchSize) {
+        this.transferProcessingService = transferProcessingService;
+        this.groupTransaction = new TransactionTemplate(transactionManager);
+        this.itemTransaction = new TransactionTemplate(transactionManager);
+        this.groupSizeSummary = DistributionSummary.builder("card.transfer.pipeline.group.size")
+                .description("Transfers committed in one pipeline transaction")
+                .register(meterRegistry);
+        this.groupFallbackCounter = Counter.builder("card.transfer.pipeline.group.fallbacks")
+                .description("Pipeline groups rolled back and re-executed one transfer per transaction")
+                .register(meterRegistry);
+        this.maxBatchSize = maxBatchSize;
+        this.queues = new ArrayList<>(partitions);
+        this.writers = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            BlockingQueue<PendingTransfer> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Thread writer = new Thread(() -> runWriter(queue), "transfer-writer-" + partition);
+            writer.setDaemon(true);
+            writers.add(writer);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writers.forEach(Thread::start);
+        log.info("Transfer pipeline started: {} partitions, up to {} transfers per transaction", writers.size(), maxBatchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Переводы, не взятые писателями, не выполнялись: вызывающие получают ошибку и могут повторить запрос
+        for (BlockingQueue<PendingTransfer> queue : queues) {
+            PendingTransfer pending;
+            while ((pending = queue.poll()) != null) {
+                pending.result().completeExceptionally(new TransferPipelineUnavailableException(TRANSFER_PIPELINE_STOPPED));
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<UUID> submit(UUID ownerId, TransferRequest request, String idempotencyKey) {
+        if (!running) {
+            throw new TransferPipelineUnavailableException(TRANSFER_PIPELINE_STOPPED);
+        }
+        PendingTransfer pending = new PendingTransfer(ownerId, request, idempotencyKey, new TransferFuture());
+        if (!queues.get(Math.floorMod(ownerId.hashCode(), queues.size())).offer(pending)) {
+            throw new TransferPipelineUnavailableException(TRANSFER_PIPELINE_QUEUE_FULL);
+        }
+        return pending.result();
+    }
+
+    private void runWriter(BlockingQueue<PendingTransfer> queue) {
+        List<PendingTransfer> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxBatchSize - 1);
+                // Переводы, отмененные вызывающим по таймауту ожидания, не выполняются
+                group.removeIf(pending -> !pending.result().start());
+                if (!group.isEmpty()) {
+                    executeGroup(group);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Transfer pipeline writer failed to process a group of {} transfers", group.size(), e);
+                group.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void executeGroup(List<PendingTransfer> group) {
+        UUID[] transferIds = new UUID[group.size()];
+        RuntimeException[] failures = new RuntimeException[group.size()];
+        try {
+            groupTransaction.executeWithoutResult(status -> {
+                for (int i = 0; i < group.size(); i++) {
+                    PendingTransfer pending = group.get(i);
+                    try {
+                        transferIds[i] = executeInSavepoint(pending);
+                    } catch (RuntimeException e) {
+                        if (!isTransferRejection(e)) {
+                            throw e;
+                        }
+                        failures[i] = e;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            groupFallbackCounter.increment();
+            log.warn("Transfer pipeline group of {} transfers failed, executing them one by one", group.size(), e);
+            executeIndividually(group);
+            return;
+        }
+        groupSizeSummary.record(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            if (failures[i] != null) {
+                group.get(i).result().completeExceptionally(failures[i]);
+            } else {
+                group.get(i).result().complete(transferIds[i]);
+            }
+        }
+    }
+
+    private void executeIndividually(List<PendingTransfer> group) {
+        for (PendingTransfer pending : group) {
+            try {
+                pending.result().complete(itemTransaction.execute(status -> execute(pending)));
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Выполняет перевод группы в точке сохранения; при отказе в переводе откатывается только она.
+     */
+    private UUID executeInSavepoint(PendingTransfer pending) {
+        Session session = entityManager.unwrap(Session.class);
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+        try {
+            UUID transferId = execute(pending);
+            // Изменения перевода записываются до следующей точки сохранения, чтобы ее откат их не затронул
+            entityManager.flush();
+            session.doWork(connection -> connection.releaseSavepoint(savepoint));
+            return transferId;
+        } catch (RuntimeException e) {
+            if (isTransferRejection(e)) {
+                session.doWork(connection -> connection.rollback(savepoint));
+                // Откат к точке сохранения не возвращает состояние сущностей, поэтому контекст очищается
+                entityManager.clear();
+            }
+            throw e;
+        }
+    }
+
+    private UUID execute(PendingTransfer pending) {
+        return transferProcessingService.execute(pending.ownerId(), pending.request(), pending.idempotencyKey());
+    }
+
+    /**
+     * Отказ в конкретном переводе, не связанный с состоянием транзакции группы.
+     */
+    private boolean isTransferRejection(RuntimeException e) {
+        return e instanceof InsufficientFundsException
+                || e instanceof CardOperationException
+                || e instanceof ResourceNotFoundException
+                || e instanceof BadRequestException;
+    }
+
+    private record PendingTransfer(UUID ownerId, TransferRequest request, String idempotencyKey,
+                                   TransferFuture result) {
+    }
+
+    /**
+     * Результат перевода в конвейере. Писатель и отмена вызывающим соревнуются за одно состояние:
+     * перевод либо взят писателем (и тогда выполнится), либо отменен (и тогда не выполнится никогда).
+     */
+    private static final class TransferFuture extends CompletableFuture<UUID> {
+
+        private static final int QUEUED = 0;
+        private static final int STARTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        boolean start() {
+            return state.compareAndSet(QUEUED, STARTED);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return state.compareAndSet(QUEUED, CANCELLED) && super.cancel(false);
+        }
+    }
+}
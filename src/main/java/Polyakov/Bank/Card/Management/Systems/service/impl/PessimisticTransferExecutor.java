@@ -0,0 +1,102 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.exception.CardOperationException;
+import Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException;
+import Polyakov.Bank.Card.Management.Systems.exception.ResourceNotFoundException;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.entity.Card;
+import Polyakov.Bank.Card.Management.Systems.service.BalanceShardService;
+import Polyakov.Bank.Card.Management.Systems.service.TransferExecutor;
+import Polyakov.Bank.Card.Management.Systems.service.TransferStepTransactional;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
+import Polyakov.Bank.Card.Management.Systems.util.UuidOrderUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Перевод с явными блокировками строк (SELECT ... FOR UPDATE).
+ * <p>
+ * Карты блокируются всегда в порядке возрастания id (порядок PostgreSQL, {@link UuidOrderUtil}), независимо от направления перевода, поэтому встречные
+ * переводы A->B и B->A ждут друг друга, но не образуют взаимоблокировку. Ожидание блокировки ограничено
+ * {@code app.transfer.lock-timeout-ms} (lock_timeout на время транзакции); по истечении транзакция откатывается
+ * и повторяется с задержкой (см. {@link Polyakov.Bank.Card.Management.Systems.aop.RetryOnTransientFailure}).
+ * Время ожидания блокировок публикуется в метрике card.transfer.lock.wait.
+ * Строка карты-получателя и так заблокирована, поэтому зачисление всегда идет в основной баланс; суббалансы
+ * карты-источника сворачиваются в него, если основного баланса не хватает.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.transfer.mode", havingValue = "pessimistic")
+public class PessimisticTransferExecutor implements TransferExecutor {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final BalanceShardService balanceShardService;
+    private final Timer lockWaitTimer;
+    private final long lockTimeoutMs;
+
+    public PessimisticTransferExecutor(BalanceShardService balanceShardService,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${app.transfer.lock-timeout-ms:2000}") long lockTimeoutMs) {
+        this.balanceShardService = balanceShardService;
+        this.lockWaitTimer = Timer.builder("card.transfer.lock.wait")
+                .description("Time spent acquiring row locks on both cards of a transfer")
+                .register(meterRegistry);
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    @Override
+    @TransferStepTransactional
+    public void transfer(UUID ownerId, UUID fromCardId, UUID toCardId, long amount) {
+        // В PostgreSQL FOR UPDATE не принимает таймаут, поэтому он задается для текущей транзакции
+        entityManager.createNativeQuery("SELECT set_config('lock_timeout', :timeout, true)")
+                .setParameter("timeout", lockTimeoutMs + "ms")
+                .getSingleResult();
+
+        // Порядок блокировок совпадает с ORDER BY id пакетных переводов (findAllByIdInAndOwnerIdForUpdate)
+        boolean fromFirst = UuidOrderUtil.compare(fromCardId, toCardId) < 0;
+        long lockStart = System.nanoTime();
+        Card first = lockCard(fromFirst ? fromCardId : toCardId, ownerId);
+        Card second = lockCard(fromFirst ? toCardId : fromCardId, ownerId);
+        lockWaitTimer.record(System.nanoTime() - lockStart, TimeUnit.NANOSECONDS);
+
+        Card fromCard = fromFirst ? first : second;
+        Card toCard = fromFirst ? second : first;
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            throw new CardOperationException("Source card ID: " + fromCardId + " is not active.");
+        }
+        if (toCard.getStatus() != CardStatus.ACTIVE) {
+            throw new CardOperationException("Destination card ID: " + toCardId + " is not active.");
+        }
+        if (fromCard.getBalance() < amount && fromCard.getBalanceShards() > 0) {
+            fromCard.setBalance(MoneyUtil.add(fromCard.getBalance(), balanceShardService.drainShards(fromCardId)));
+        }
+        if (fromCard.getBalance() < amount) {
+            throw new InsufficientFundsException("Insufficient funds on source card ID: " + fromCardId);
+        }
+
+        // Сущности управляемые: изменения балансов запишутся при фиксации транзакции
+        fromCard.setBalance(MoneyUtil.subtract(fromCard.getBalance(), amount));
+        toCard.setBalance(MoneyUtil.add(toCard.getBalance(), amount));
+    }
+
+    private Card lockCard(UUID cardId, UUID ownerId) {
+        Card card = entityManager.find(Card.class, cardId, LockModeType.PESSIMISTIC_WRITE);
+        // owner — ленивый прокси, его id доступен без загрузки пользователя
+        if (card == null || !card.getOwner().getId().equals(ownerId)) {
+            throw new ResourceNotFoundException("Card not found with id: " + cardId + " for owner " + ownerId);
+        }
+        return card;
+    }
+}
@@ -0,0 +1,41 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.service.IdempotencyService;
+import Polyakov.Bank.Card.Management.Systems.service.LedgerService;
+import Polyakov.Bank.Card.Management.Systems.service.TransferExecutor;
+import Polyakov.Bank.Card.Management.Systems.service.TransferProcessingService;
+import Polyakov.Bank.Card.Management.Systems.service.TransferStepTransactional;
+import Polyakov.Bank.Card.Management.Systems.util.MoneyUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class TransferProcessingServiceImpl implements TransferProcessingService {
+
+    private final TransferExecutor transferExecutor;
+    private final LedgerService ledgerService;
+    private final IdempotencyService idempotencyService;
+
+    @Override
+    @TransferStepTransactional
+    public UUID execute(UUID ownerId, TransferRequest request, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<UUID> previousTransferId = idempotencyService.findOrClaimTransfer(ownerId, idempotencyKey, request);
+            if (previousTransferId.isPresent()) {
+                return previousTransferId.get();
+            }
+        }
+        long amount = MoneyUtil.toMinorUnits(request.getAmount());
+        transferExecutor.transfer(ownerId, request.getFromCardId(), request.getToCardId(), amount);
+        UUID transferId = ledgerService.recordTransfer(request.getFromCardId(), request.getToCardId(), amount);
+        if (idempotencyKey != null) {
+            idempotencyService.completeTransfer(ownerId, idempotencyKey, request, transferId);
+        }
+        return transferId;
+    }
+}
@@ -0,0 +1,52 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.repository.CardRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.UserBalanceRepository;
+import Polyakov.Bank.Card.Management.Systems.repository.UserRepository;
+import Polyakov.Bank.Card.Management.Systems.service.UserBalanceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserBalanceServiceImpl implements UserBalanceService {
+
+    private final UserBalanceRepository userBalanceRepository;
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getTotal(UUID userId) {
+        return userBalanceRepository.findTotalByUserId(userId).orElse(0L);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyDelta(UUID userId, long delta) {
+        userBalanceRepository.addToTotal(userId, delta);
+    }
+
+    /**
+     * Сначала блокируется строка суммы, затем считается SUM по картам: все изменения суммы тоже берут эту блокировку,
+     * поэтому параллельное изменение либо уже зафиксировано и видно в SUM, либо применит свое приращение после записи.
+     * Строки может еще не быть (у пользователя не было изменений), а FOR UPDATE не блокирует отсутствующую строку,
+     * поэтому она сначала создается нулевым приращением.
+     */
+    @Override
+    @Transactional
+    public long recalculate(UUID userId) {
+        userBalanceRepository.addToTotal(userId, 0);
+        userBalanceRepository.lockByUserId(userId);
+        long total = cardRepository.getSumBalanceByOwner(userRepository.getReferenceById(userId));
+        userBalanceRepository.setTotal(userId, total);
+        log.info("Total balance of user ID: {} recalculated from cards", userId);
+        return total;
+    }
+}
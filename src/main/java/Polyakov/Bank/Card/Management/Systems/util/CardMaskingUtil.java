@@ -8,6 +8,26 @@ public final class CardMaskingUtil {
     private static final char MASK_CHAR = '*';
     private static final char SEPARATOR = ' ';
 
+    /**
+     * Возвращает последние 4 цифры номера карты (или все цифры, если их меньше 4).
+     *
+     * @param cardNumber Расшифрованный номер карты.
+     * @return Последние цифры номера, или null если входные данные null.
+     */
+    public static String lastFourDigits(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(VISIBLE_DIGITS);
+        for (int i = cardNumber.length() - 1; i >= 0 && digits.length() < VISIBLE_DIGITS; i--) {
+            char c = cardNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.reverse().toString();
+    }
+
     /**
      * Маскирует номер карты, оставляя видимыми последние 4 цифры.
      * Форматирует результат как "**** **** **** 1234".
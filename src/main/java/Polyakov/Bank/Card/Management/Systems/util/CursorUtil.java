@@ -0,0 +1,40 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import Polyakov.Bank.Card.Management.Systems.exception.BadRequestException;
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.INVALID_CURSOR;
+
+/**
+ * Курсоры keyset-пагинации: ключ последней строки страницы в двоичном виде, закодированный Base64 (URL-safe).
+ * Курсор непрозрачен для клиента и не подписывается: подделанный курсор лишь сдвигает начало страницы
+ * внутри данных, доступ к которым проверяется отдельно.
+ */
+@UtilityClass
+public class CursorUtil {
+
+    public String encode(ByteBuffer key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.array());
+    }
+
+    /**
+     * Декодирует курсор и проверяет длину ключа.
+     *
+     * @throws BadRequestException если курсор поврежден или получен от другого списка.
+     */
+    public ByteBuffer decode(String cursor, int keyLength) {
+        byte[] key;
+        try {
+            key = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(INVALID_CURSOR);
+        }
+        if (key.length != keyLength) {
+            throw new BadRequestException(INVALID_CURSOR);
+        }
+        return ByteBuffer.wrap(key);
+    }
+}
@@ -0,0 +1,90 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Ключевая перестановка чисел диапазона [0, domainSize): каждое число отображается в другое число того же
+ * диапазона, разные числа всегда дают разные результаты, а без ключа порядок выглядит случайным.
+ * <p>
+ * Реализована как сбалансированная сеть Фейстеля над 2^k (k — наименьшее четное, при котором 2^k покрывает диапазон)
+ * с HMAC-SHA256 в качестве раундовой функции. Значения вне диапазона проходят через сеть повторно (cycle walking),
+ * что сохраняет биективность на исходном диапазоне.
+ */
+public final class FormatPreservingPermutation {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int ROUNDS = 8;
+
+    private final Mac prototype;
+    private final long domainSize;
+    private final int halfBits;
+    private final long halfMask;
+
+    public FormatPreservingPermutation(byte[] key, long domainSize) {
+        if (domainSize < 2) {
+            throw new IllegalArgumentException("Permutation domain must contain at least two values.");
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(domainSize - 1);
+        this.halfBits = (bits + 1) / 2;
+        if (halfBits > 31) {
+            throw new IllegalArgumentException("Permutation domain is too large.");
+        }
+        this.halfMask = (1L << halfBits) - 1;
+        this.domainSize = domainSize;
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to initialize format-preserving permutation", e);
+        }
+    }
+
+    public long getDomainSize() {
+        return domainSize;
+    }
+
+    /**
+     * @param value Число из диапазона [0, domainSize).
+     * @return Образ числа в том же диапазоне.
+     */
+    public long permute(long value) {
+        if (value < 0 || value >= domainSize) {
+            throw new IllegalArgumentException("Value is outside of the permutation domain: " + value);
+        }
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Failed to clone permutation HMAC", e);
+        }
+        byte[] input = new byte[Integer.BYTES + 1];
+        long result = value;
+        do {
+            result = encrypt(mac, input, result);
+        } while (result >= domainSize);
+        return result;
+    }
+
+    private long encrypt(Mac mac, byte[] input, long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            long next = left ^ roundFunction(mac, input, round, right);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long roundFunction(Mac mac, byte[] input, int round, long half) {
+        input[0] = (byte) round;
+        input[1] = (byte) (half >>> 24);
+        input[2] = (byte) (half >>> 16);
+        input[3] = (byte) (half >>> 8);
+        input[4] = (byte) half;
+        byte[] digest = mac.doFinal(input);
+        long output = ((digest[0] & 0xFFL) << 24) | ((digest[1] & 0xFFL) << 16) | ((digest[2] & 0xFFL) << 8) | (digest[3] & 0xFFL);
+        return output & halfMask;
+    }
+}
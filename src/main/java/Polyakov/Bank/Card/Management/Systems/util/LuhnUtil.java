@@ -2,36 +2,74 @@ package Polyakov.Bank.Card.Management.Systems.util;
 
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.validator.routines.checkdigit.CheckDigit;
-import org.apache.commons.validator.routines.checkdigit.LuhnCheckDigit;
+
+import java.util.random.RandomGenerator;
 
 import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.FAILED_TO_CALCULATE_DIGIT_FOR_INPUT;
 import static Polyakov.Bank.Card.Management.Systems.util.ServiceMessagesUtil.INPUT_NUMBER_CANNOT_BE_NULL_OR_EMPTY;
 
+/**
+ * Алгоритм Луна на примитивах: цифры читаются напрямую из {@code char[]}/{@link CharSequence},
+ * без регулярных выражений, промежуточных строк и упаковки в объекты. Символы, не являющиеся цифрами
+ * (пробелы, дефисы), пропускаются, как и раньше.
+ */
 @Slf4j
 @UtilityClass
 public class LuhnUtil {
 
-    private final CheckDigit luhnCheckDigit = LuhnCheckDigit.LUHN_CHECK_DIGIT;
-
     /**
      * Проверяет, является ли номер карты валидным согласно алгоритму Луна.
      *
      * @param cardNumber Номер карты (строка цифр).
      * @return true, если номер валиден, иначе false.
      */
-    public boolean isValid(String cardNumber) {
-        if (cardNumber == null || cardNumber.trim().isEmpty()) {
+    public boolean isValid(CharSequence cardNumber) {
+        if (cardNumber == null) {
             return false;
         }
-        String digitsOnly = cardNumber.replaceAll("\\D", "");
-        boolean isValid = luhnCheckDigit.isValid(digitsOnly);
+        int sum = 0;
+        int digitCount = 0;
+        for (int i = cardNumber.length() - 1; i >= 0; i--) {
+            int digit = cardNumber.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                continue;
+            }
+            sum += (digitCount & 1) == 1 ? doubled(digit) : digit;
+            digitCount++;
+        }
+        // Нулевая сумма (номер из одних нулей) не считается валидной, как и в commons-validator
+        boolean isValid = sum != 0 && sum % 10 == 0;
         if (!isValid) {
-            log.trace("Luhn check failed for card number (digits only): {}", digitsOnly);
+            log.trace("Luhn check failed for card number");
         }
         return isValid;
     }
 
+    /**
+     * Проверяет номер, записанный цифрами в массиве (без разделителей).
+     *
+     * @param digits Массив символов-цифр.
+     * @param offset Начало номера в массиве.
+     * @param length Длина номера вместе с контрольной цифрой.
+     * @return true, если номер валиден, иначе false.
+     */
+    public boolean isValid(char[] digits, int offset, int length) {
+        if (length <= 0) {
+            return false;
+        }
+        int sum = 0;
+        boolean doubleDigit = false;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int digit = digits[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            sum += doubleDigit ? doubled(digit) : digit;
+            doubleDigit = !doubleDigit;
+        }
+        return sum != 0 && sum % 10 == 0;
+    }
+
     /**
      * Вычисляет контрольную цифру Луна для заданного номера без контрольной цифры.
      *
@@ -43,12 +81,69 @@ public class LuhnUtil {
         if (numberWithoutCheckDigit == null || numberWithoutCheckDigit.trim().isEmpty()) {
             throw new IllegalArgumentException(INPUT_NUMBER_CANNOT_BE_NULL_OR_EMPTY);
         }
-        String digitsOnly = numberWithoutCheckDigit.replaceAll("\\D", "");
-        try {
-            return luhnCheckDigit.calculate(digitsOnly);
-        } catch (Exception e) {
-            log.error("Failed to calculate Luhn check digit for: {}", digitsOnly, e);
-            throw new IllegalArgumentException(FAILED_TO_CALCULATE_DIGIT_FOR_INPUT + numberWithoutCheckDigit, e);
+        int sum = 0;
+        int digitCount = 0;
+        for (int i = numberWithoutCheckDigit.length() - 1; i >= 0; i--) {
+            int digit = numberWithoutCheckDigit.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                continue;
+            }
+            sum += (digitCount & 1) == 0 ? doubled(digit) : digit;
+            digitCount++;
         }
+        if (digitCount == 0 || sum == 0) {
+            log.error("Failed to calculate Luhn check digit for: {}", numberWithoutCheckDigit);
+            throw new IllegalArgumentException(FAILED_TO_CALCULATE_DIGIT_FOR_INPUT + numberWithoutCheckDigit);
+        }
+        return String.valueOf((char) ('0' + checkDigit(sum)));
+    }
+
+    /**
+     * Вычисляет контрольную цифру для цифр массива в диапазоне [offset, offset + length).
+     *
+     * @return Контрольная цифра (0-9).
+     * @throws IllegalArgumentException если в диапазоне встретился символ, не являющийся цифрой.
+     */
+    public int calculateCheckDigit(char[] digits, int offset, int length) {
+        int sum = 0;
+        boolean doubleDigit = true;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            int digit = digits[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException(FAILED_TO_CALCULATE_DIGIT_FOR_INPUT + new String(digits, offset, length));
+            }
+            sum += doubleDigit ? doubled(digit) : digit;
+            doubleDigit = !doubleDigit;
+        }
+        return checkDigit(sum);
+    }
+
+    /**
+     * Заполняет массив случайным номером, валидным по алгоритму Луна: все позиции, кроме последней,
+     * получают случайные цифры, последняя — контрольную цифру. Сумма считается в том же проходе.
+     *
+     * @param target Массив, длина которого равна длине номера.
+     * @param random Источник случайных чисел.
+     */
+    public void fillRandomValidNumber(char[] target, RandomGenerator random) {
+        int last = target.length - 1;
+        int sum = 0;
+        boolean doubleDigit = true;
+        for (int i = last - 1; i >= 0; i--) {
+            int digit = random.nextInt(10);
+            target[i] = (char) ('0' + digit);
+            sum += doubleDigit ? doubled(digit) : digit;
+            doubleDigit = !doubleDigit;
+        }
+        target[last] = (char) ('0' + checkDigit(sum));
+    }
+
+    private int doubled(int digit) {
+        int value = digit * 2;
+        return value > 9 ? value - 9 : value;
+    }
+
+    private int checkDigit(int sum) {
+        return (10 - sum % 10) % 10;
     }
 }
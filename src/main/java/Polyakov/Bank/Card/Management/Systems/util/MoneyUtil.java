@@ -0,0 +1,90 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежные суммы внутри сервиса хранятся и считаются в минимальных единицах валюты (копейках) типа {@code long}:
+ * сравнение, сложение и вычитание не создают объектов, в отличие от {@link BigDecimal}.
+ * {@link BigDecimal} остается только на границе API (DTO запросов и ответов).
+ * <p>
+ * Правила округления:
+ * <ul>
+ *     <li>суммы операций переводятся точно: больше {@value #SCALE} знаков после запятой — ошибка, а не округление;</li>
+ *     <li>границы фильтров округляются внутрь диапазона (нижняя вверх, верхняя вниз), так что фильтр отбирает
+ *     те же балансы, что и при сравнении с исходным значением;</li>
+ *     <li>обратный перевод в {@link BigDecimal} всегда точен и дает ровно {@value #SCALE} знака после запятой;</li>
+ *     <li>переполнение {@code long} при арифметике — {@link ArithmeticException}, а не тихий переход через ноль.</li>
+ * </ul>
+ */
+@UtilityClass
+public class MoneyUtil {
+
+    /**
+     * Количество знаков после запятой (копейки).
+     */
+    public final int SCALE = 2;
+
+    /**
+     * Точно переводит сумму в минимальные единицы.
+     *
+     * @throws ArithmeticException если у суммы больше {@value #SCALE} значащих знаков после запятой или она не помещается в long.
+     */
+    public long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * Проверяет, что сумма переводится в минимальные единицы точно (см. {@link #toMinorUnits(BigDecimal)}).
+     */
+    public boolean isMinorUnitsExact(BigDecimal amount) {
+        try {
+            toMinorUnits(amount);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Переводит нижнюю границу фильтра в минимальные единицы с округлением вверх.
+     */
+    public long toMinorUnitsCeiling(BigDecimal amount) {
+        return toMinorUnitsSaturated(amount.setScale(SCALE, RoundingMode.CEILING));
+    }
+
+    /**
+     * Переводит верхнюю границу фильтра в минимальные единицы с округлением вниз.
+     */
+    public long toMinorUnitsFloor(BigDecimal amount) {
+        return toMinorUnitsSaturated(amount.setScale(SCALE, RoundingMode.FLOOR));
+    }
+
+    /**
+     * Переводит сумму в минимальных единицах в {@link BigDecimal} с {@value #SCALE} знаками после запятой.
+     */
+    public BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public long add(long augend, long addend) {
+        return Math.addExact(augend, addend);
+    }
+
+    public long subtract(long minuend, long subtrahend) {
+        return Math.subtractExact(minuend, subtrahend);
+    }
+
+    /**
+     * Граница фильтра за пределами long заменяется ближайшим значением long: такой баланс все равно невозможен.
+     */
+    private long toMinorUnitsSaturated(BigDecimal roundedAmount) {
+        try {
+            return toMinorUnits(roundedAmount);
+        } catch (ArithmeticException e) {
+            return roundedAmount.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+    }
+}
@@ -17,10 +17,26 @@ public class ServiceMessagesUtil {
     public static final String ADMIN_CANNOT_MANUALLY_SET_STATUS_EXPIRED = "Admin cannot manually set status to EXPIRED.";
     public static final String CANNOT_ACTIVATE_EXPIRED_CARD_ID = "Cannot activate an expired card ID: ";
     public static final String CARD_NOT_FOUND = "Card not found with id: ";
+    public static final String BALANCE_SHARDS_OUT_OF_RANGE = "Number of balance shards must be between 0 and ";
 
 
     public static final String REFRESH_TOKEN_WAS_EXPIRED = "Refresh token was expired. Please make a new signin request";
     public static final String COULD_NOT_GENERATE_UNIQUE_CARD_NUMBER = "Could not generate a unique card number.";
+    public static final String CARD_NUMBER_SPACE_EXHAUSTED_FOR_BIN = "Card number space is exhausted for BIN: ";
+    public static final String BULK_ISSUANCE_LIMIT_EXCEEDED = "Too many cards in one bulk request. Maximum is ";
+    public static final String BULK_CARD_INSERT_FAILED = "Card could not be saved.";
+    public static final String BATCH_TRANSFER_LIMIT_EXCEEDED = "Too many transfers in one batch request. Maximum is ";
+    public static final String IDEMPOTENCY_KEY_REUSED = "Idempotency key has already been used with different request parameters.";
+    public static final String IDEMPOTENCY_KEY_TOO_LONG = "Idempotency key is too long. Maximum length is ";
+    public static final String INVALID_CURSOR = "Invalid pagination cursor.";
+    public static final String PAGE_SIZE_OUT_OF_RANGE = "Page size must be between 1 and ";
+    public static final String TRANSFER_AMOUNT_OUT_OF_FORMAT = "Transfer amount must have at most 16 integer digits and 2 decimal places.";
+    public static final String TRANSFER_PIPELINE_QUEUE_FULL = "Transfer queue is full. Please retry the request.";
+    public static final String TRANSFER_PIPELINE_STOPPED = "Transfer pipeline is stopped.";
+    public static final String TRANSFER_PIPELINE_TIMEOUT = "Transfer was not started in time and has been cancelled. Please retry the request.";
+    public static final String TRANSFER_PIPELINE_OUTCOME_UNKNOWN = "Transfer is being processed and its outcome is unknown. Retry with the same Idempotency-Key to learn it.";
+    public static final String BATCH_TRANSFER_ITEM_INCOMPLETE = "Transfer must specify source card, destination card and amount.";
+    public static final String BATCH_TRANSFER_NOT_APPLIED = "Not applied: another transfer in the all-or-nothing batch failed.";
     public static final String INPUT_NUMBER_CANNOT_BE_NULL_OR_EMPTY = "Input number cannot be null or empty";
     public static final String FAILED_TO_CALCULATE_DIGIT_FOR_INPUT = "Failed to calculate check digit for input: ";
     public static final String ENCRYPTION_HAS_NOT_BEEN_INJECTED_INTO_CARD_NUMBER_CONVERTER = "EncryptionService has not been injected into CardNumberConverter";
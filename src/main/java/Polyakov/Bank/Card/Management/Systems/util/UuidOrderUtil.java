@@ -0,0 +1,22 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Порядок UUID, совпадающий с PostgreSQL: тип uuid сравнивается побайтово как беззнаковые числа.
+ * {@link UUID#compareTo} сравнивает половины UUID как знаковые long и для половины случайных пар дает обратный порядок,
+ * поэтому для порядка блокировок строк, согласованного с {@code ORDER BY id}, используется только {@link #POSTGRES_ORDER}.
+ */
+@UtilityClass
+public class UuidOrderUtil {
+
+    public static final Comparator<UUID> POSTGRES_ORDER = UuidOrderUtil::compare;
+
+    public static int compare(UUID first, UUID second) {
+        int high = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,97 @@
+package Polyakov.Bank.Card.Management.Systems;
+
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Временная схема PostgreSQL для тестов, которым нужна настоящая база (нативные запросы, планы, блокировки).
+ * <p>
+ * База задается переменными {@value #URL_VARIABLE}, {@value #USER_VARIABLE} и {@value #PASSWORD_VARIABLE}; тесты
+ * без них пропускаются ({@code @EnabledIfEnvironmentVariable(named = PostgresTestSchema.URL_VARIABLE, matches = ".+")}).
+ * Каждый тестовый класс получает свою схему со всеми миграциями и удаляет ее после себя ({@link #close()}),
+ * поэтому данные рабочей или чужой схемы тест не видит и не меняет. Запуск:
+ * {@code TEST_DB_URL=jdbc:postgresql://localhost:5433/postgres TEST_DB_USER=local TEST_DB_PASSWORD=local mvn test}
+ */
+public final class PostgresTestSchema implements AutoCloseable {
+
+    public static final String URL_VARIABLE = "TEST_DB_URL";
+    public static final String USER_VARIABLE = "TEST_DB_USER";
+    public static final String PASSWORD_VARIABLE = "TEST_DB_PASSWORD";
+
+    private static final String CHANGELOG = "db/changelog/changelog-master.xml";
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String schema;
+
+    private PostgresTestSchema(String url, String user, String password, String schema) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.schema = schema;
+    }
+
+    /**
+     * Создает пустую схему со случайным именем в базе из переменных окружения.
+     */
+    public static PostgresTestSchema create() throws SQLException {
+        PostgresTestSchema testSchema = new PostgresTestSchema(System.getenv(URL_VARIABLE), System.getenv(USER_VARIABLE),
+                System.getenv(PASSWORD_VARIABLE), "test_" + UUID.randomUUID().toString().replace("-", ""));
+        try (Connection connection = DriverManager.getConnection(testSchema.url, testSchema.user, testSchema.password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA " + testSchema.schema);
+        }
+        return testSchema;
+    }
+
+    /**
+     * JDBC URL, в котором схема теста стоит первой в search_path.
+     */
+    public String getJdbcUrl() {
+        return url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema;
+    }
+
+    public Connection connect() throws SQLException {
+        return DriverManager.getConnection(getJdbcUrl(), user, password);
+    }
+
+    /**
+     * Применяет changelog к схеме (для тестов без контекста Spring; в контексте миграции применяет Liquibase приложения).
+     */
+    public void migrate() throws Exception {
+        try (Connection connection = connect()) {
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            database.setDefaultSchemaName(schema);
+            new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database).update("");
+        }
+    }
+
+    /**
+     * Направляет источник данных и миграции контекста Spring в схему теста.
+     */
+    public void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", this::getJdbcUrl);
+        registry.add("spring.datasource.username", () -> user);
+        registry.add("spring.datasource.password", () -> password);
+        registry.add("spring.liquibase.default-schema", () -> schema);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package Polyakov.Bank.Card.Management.Systems.aop;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransientFailureRetryAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void retriesTransientFailuresUntilSuccess() {
+        FlakyOperation operation = proxy(new FlakyOperation(2, new CannotAcquireLockException("lock timeout",
+                new SQLException("canceling statement due to lock timeout", "55P03"))));
+
+        assertEquals("done", operation.run());
+        assertEquals(3, operation.attempts());
+        assertEquals(3.0, meterRegistry.counter("card.write.attempts", "method", "FlakyOperation.run").count());
+        assertEquals(2.0, meterRegistry.counter("card.write.conflicts",
+                "method", "FlakyOperation.run", "reason", "lock_timeout").count());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        FlakyOperation operation = proxy(new FlakyOperation(10, new CannotAcquireLockException("deadlock",
+                new SQLException("deadlock detected", "40P01"))));
+
+        assertThrows(CannotAcquireLockException.class, operation::run);
+        assertEquals(3, operation.attempts());
+        assertEquals(1.0, meterRegistry.counter("card.write.retries.exhausted",
+                "method", "FlakyOperation.run", "reason", "deadlock").count());
+    }
+
+    @Test
+    void retriesOptimisticLockConflicts() {
+        FlakyOperation operation = proxy(new FlakyOperation(1,
+                new ObjectOptimisticLockingFailureException(Object.class, "card")));
+
+        assertEquals("done", operation.run());
+        assertEquals(1.0, meterRegistry.counter("card.write.conflicts",
+                "method", "FlakyOperation.run", "reason", "optimistic_lock").count());
+    }
+
+    @Test
+    void doesNotRetryBusinessErrors() {
+        FlakyOperation operation = proxy(new FlakyOperation(1, new IllegalStateException("insufficient funds")));
+
+        assertThrows(IllegalStateException.class, operation::run);
+        assertEquals(1, operation.attempts());
+    }
+
+    private FlakyOperation proxy(FlakyOperation target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new TransientFailureRetryAspect(meterRegistry, 3, 1, 2));
+        return factory.getProxy();
+    }
+
+    static class FlakyOperation {
+
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final int failures;
+        private final RuntimeException error;
+
+        FlakyOperation(int failures, RuntimeException error) {
+            this.failures = failures;
+            this.error = error;
+        }
+
+        @RetryOnTransientFailure
+        public String run() {
+            if (attempts.incrementAndGet() <= failures) {
+                throw error;
+            }
+            return "done";
+        }
+
+        public int attempts() {
+            return attempts.get();
+        }
+    }
+}
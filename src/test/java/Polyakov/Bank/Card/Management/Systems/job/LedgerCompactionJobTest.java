@@ -0,0 +1,101 @@
+package Polyakov.Bank.Card.Management.Systems.job;
+
+import Polyakov.Bank.Card.Management.Systems.PostgresTestSchema;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Свертка журнала на настоящем PostgreSQL (см. {@link PostgresTestSchema}): запись транзакции, которая началась
+ * раньше, а зафиксирована позже других, не должна оказаться позади позиции свертки.
+ */
+@SpringBootTest(properties = {
+        "app.ledger.compaction.initial-delay-ms=3600000",
+        "app.ledger.compaction.grace-period-ms=1000"
+})
+@DirtiesContext
+@EnabledIfEnvironmentVariable(named = PostgresTestSchema.URL_VARIABLE, matches = ".+")
+class LedgerCompactionJobTest {
+
+    private static final long GRACE_WAIT_MS = 1_200;
+
+    private static PostgresTestSchema schema;
+
+    @Autowired
+    private LedgerCompactionJob compactionJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        schema = PostgresTestSchema.create();
+        schema.registerProperties(registry);
+    }
+
+    @AfterAll
+    static void dropSchema() throws Exception {
+        if (schema != null) {
+            schema.close();
+        }
+    }
+
+    @Test
+    void entryCommittedAfterNewerEntriesIsFolded() throws Exception {
+        UUID cardId = insertCard();
+
+        try (Connection longTransaction = schema.connect()) {
+            longTransaction.setAutoCommit(false);
+            try (PreparedStatement insert = longTransaction.prepareStatement(
+                    "INSERT INTO ledger_entries (id, card_id, entry_type, amount_minor) " +
+                            "VALUES (nextval('ledger_entries_seq'), ?, 'TRANSFER_CREDIT', 700)")) {
+                insert.setObject(1, cardId);
+                insert.executeUpdate();
+            }
+            Thread.sleep(GRACE_WAIT_MS);
+            insertEntry(cardId, 300);
+            Thread.sleep(GRACE_WAIT_MS);
+
+            // Запись с более поздним created_at уже старше grace-period, но позиция не переходит открытую транзакцию
+            compactionJob.run();
+            assertEquals(0, snapshotBalance(cardId));
+
+            longTransaction.commit();
+        }
+        Thread.sleep(GRACE_WAIT_MS);
+
+        compactionJob.run();
+        assertEquals(1_000, snapshotBalance(cardId));
+    }
+
+    private UUID insertCard() {
+        UUID ownerId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, password) VALUES (?, ?, 'x')", ownerId, ownerId + "@example.com");
+        UUID cardId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO cards (id, owner_id, expiry_date, status, balance_minor, card_number_bin, card_number_last4) " +
+                "VALUES (?, ?, '12/30', 'ACTIVE', 1000, decode(md5(random()::text), 'hex'), '0000')", cardId, ownerId);
+        return cardId;
+    }
+
+    private void insertEntry(UUID cardId, long amount) {
+        jdbcTemplate.update("INSERT INTO ledger_entries (id, card_id, entry_type, amount_minor) " +
+                "VALUES (nextval('ledger_entries_seq'), ?, 'TRANSFER_CREDIT', ?)", cardId, amount);
+    }
+
+    private long snapshotBalance(UUID cardId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance_minor), 0) FROM card_balance_snapshots WHERE card_id = ?",
+                Long.class, cardId);
+    }
+}
@@ -0,0 +1,328 @@
+package Polyakov.Bank.Card.Management.Systems.repository;
+
+import Polyakov.Bank.Card.Management.Systems.PostgresTestSchema;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardStatus;
+import Polyakov.Bank.Card.Management.Systems.model.constant.PageTotalMode;
+import Polyakov.Bank.Card.Management.Systems.model.dto.CardDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.TransferHistoryEntryDto;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.CursorPagedResponse;
+import Polyakov.Bank.Card.Management.Systems.model.dto.response.PagedResponse;
+import Polyakov.Bank.Card.Management.Systems.model.entity.User;
+import Polyakov.Bank.Card.Management.Systems.security.SecurityUserDetails;
+import Polyakov.Bank.Card.Management.Systems.service.CardService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что горячие запросы к картам и журналу используют индексы из миграций.
+ * <p>
+ * Запросы не переписаны в тесте вручную: тест вызывает методы сервиса карт, записывает SQL и параметры,
+ * которые Hibernate и Spring Data отправили в базу, и выполняет для них EXPLAIN с теми же параметрами.
+ * Поэтому изменение спецификаций, сортировки или курсора, из-за которого запрос перестанет попадать в индекс,
+ * ломает тест. База — временная схема {@link PostgresTestSchema} с {@value #SEED_USERS} пользователями
+ * по {@value #SEED_CARDS_PER_USER} карт и собранной статистикой: на пустых таблицах планировщик выбирает индексы
+ * не так, как под нагрузкой. В сессии EXPLAIN последовательное сканирование выключено (enable_seqscan = off):
+ * Seq Scan в плане означает, что подходящего индекса нет.
+ */
+@SpringBootTest
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = PostgresTestSchema.URL_VARIABLE, matches = ".+")
+class CardQueryPlanTest {
+
+    private static final int SEED_USERS = 5_000;
+    private static final int SEED_CARDS_PER_USER = 20;
+    private static final int PAGE_SIZE = 5;
+
+    private static PostgresTestSchema schema;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Connection connection;
+    private UUID ownerId;
+    private String ownerEmail;
+    private UUID historyCardId;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        schema = PostgresTestSchema.create();
+        schema.registerProperties(registry);
+    }
+
+    @TestConfiguration
+    static class RecordingConfig {
+        @Bean
+        static BeanPostProcessor statementRecorder() {
+            return new StatementRecorder();
+        }
+    }
+
+    @BeforeAll
+    void seed() throws Exception {
+        jdbcTemplate.execute("INSERT INTO users (id, email, password) " +
+                "SELECT gen_random_uuid(), 'plan-check-' || n || '@example.com', 'x' FROM generate_series(1, " + SEED_USERS + ") n");
+        // Карты распределены по статусам примерно как в работе (85% ACTIVE), балансы равномерно от 0 до 10000.00
+        jdbcTemplate.execute("INSERT INTO cards (id, owner_id, expiry_date, status, balance_minor, card_number_bin, card_number_last4) " +
+                "SELECT gen_random_uuid(), u.id, '12/30', " +
+                "CASE WHEN random() < 0.85 THEN 'ACTIVE' WHEN random() < 0.66 THEN 'BLOCKED' ELSE 'EXPIRED' END, " +
+                "floor(random() * 1000000)::bigint, decode(md5(random()::text), 'hex'), lpad((n % 10000)::text, 4, '0') " +
+                "FROM users u CROSS JOIN generate_series(1, " + SEED_CARDS_PER_USER + ") n");
+        ownerEmail = "plan-check-1@example.com";
+        ownerId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", UUID.class, ownerEmail);
+        historyCardId = jdbcTemplate.queryForObject("SELECT id FROM cards WHERE owner_id = ? LIMIT 1", UUID.class, ownerId);
+        jdbcTemplate.execute("INSERT INTO ledger_entries (id, card_id, entry_type, amount_minor, created_at) " +
+                "SELECT row_number() OVER (), c.id, 'TRANSFER_CREDIT', 100, now() - n * interval '1 minute' " +
+                "FROM cards c CROSS JOIN generate_series(1, 2) n");
+        jdbcTemplate.update("INSERT INTO ledger_entries (id, card_id, entry_type, amount_minor, created_at) " +
+                "SELECT (SELECT max(id) FROM ledger_entries) + n, ?, 'TRANSFER_DEBIT', 100, now() - n * interval '1 second' " +
+                "FROM generate_series(1, 30) n", historyCardId);
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE cards");
+        jdbcTemplate.execute("ANALYZE ledger_entries");
+
+        connection = schema.connect();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+        }
+    }
+
+    @AfterAll
+    void dropSchema() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (schema != null) {
+            schema.close();
+        }
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+        StatementRecorder.stop();
+    }
+
+    @Test
+    void ownerCardsFilteredByStatusAndBalance() throws Exception {
+        authenticateOwner();
+
+        StatementRecorder.start();
+        cardService.getCurrentUserCardsFiltered(CardStatus.ACTIVE, new BigDecimal("1.00"), new BigDecimal("1000.00"),
+                PageRequest.of(0, PAGE_SIZE, Sort.by("id")), null, PageTotalMode.NONE);
+
+        assertUsesIndex(explainLastQueryOf("cards"), "ix_cards_owner_status_balance");
+    }
+
+    @Test
+    void ownerCardsPagedById() throws Exception {
+        authenticateOwner();
+        PagedResponse<CardDto> firstPage = cardService.getCurrentUserCardsFiltered(null, null, null,
+                PageRequest.of(0, PAGE_SIZE, Sort.by("id")), null, PageTotalMode.NONE);
+        assertNotNull(firstPage.getNextCursor());
+
+        StatementRecorder.start();
+        cardService.getCurrentUserCardsFiltered(null, null, null, PageRequest.of(0, PAGE_SIZE), firstPage.getNextCursor(), null);
+
+        assertUsesIndex(explainLastQueryOf("cards"), "ix_cards_owner_id_id");
+    }
+
+    @Test
+    void cardsFilteredByOwnerEmail() throws Exception {
+        StatementRecorder.start();
+        cardService.getAllCardsFiltered(null, ownerEmail, null, null,
+                PageRequest.of(0, PAGE_SIZE, Sort.by("id")), null, PageTotalMode.NONE);
+
+        String plan = explainLastQueryOf("cards");
+        assertUsesIndex(plan, "users_email_key", "ix_cards_owner_id_id", "ix_cards_owner_status_balance");
+        assertFalse(plan.contains("Seq Scan on users"), plan);
+    }
+
+    @Test
+    void activeCardsInBalanceRange() throws Exception {
+        StatementRecorder.start();
+        cardService.getAllCardsFiltered(CardStatus.ACTIVE, null, new BigDecimal("1.00"), new BigDecimal("1000.00"),
+                PageRequest.of(0, PAGE_SIZE, Sort.by("balance")), null, PageTotalMode.NONE);
+
+        assertUsesIndex(explainLastQueryOf("cards"), "ix_cards_active_balance");
+    }
+
+    @Test
+    void allCardsPagedByBalanceCursor() throws Exception {
+        PagedResponse<CardDto> firstPage = cardService.getAllCardsFiltered(null, null, null, null,
+                PageRequest.of(0, PAGE_SIZE, Sort.by("balance")), null, PageTotalMode.NONE);
+        assertNotNull(firstPage.getNextCursor());
+
+        StatementRecorder.start();
+        cardService.getAllCardsFiltered(null, null, null, null, PageRequest.of(0, PAGE_SIZE), firstPage.getNextCursor(), null);
+
+        String plan = explainLastQueryOf("cards");
+        assertUsesIndex(plan, "ix_cards_balance_id");
+        // Обход индекса начинается с позиции курсора, а не фильтрует карты с начала индекса
+        assertTrue(plan.matches("(?s).*Index Cond: [^\\n]*balance_minor >=.*"), plan);
+    }
+
+    @Test
+    void cardHistoryPage() throws Exception {
+        authenticateOwner();
+        CursorPagedResponse<TransferHistoryEntryDto> firstPage = cardService.getCurrentUserCardHistory(historyCardId, null, PAGE_SIZE);
+        assertNotNull(firstPage.getNextCursor());
+
+        StatementRecorder.start();
+        cardService.getCurrentUserCardHistory(historyCardId, firstPage.getNextCursor(), PAGE_SIZE);
+
+        assertUsesIndex(explainLastQueryOf("ledger_entries"), "ix_ledger_entries_card_history");
+    }
+
+    private void authenticateOwner() {
+        User owner = new User();
+        owner.setId(ownerId);
+        owner.setEmail(ownerEmail);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new SecurityUserDetails(owner), null, List.of()));
+    }
+
+    /**
+     * EXPLAIN последнего записанного SELECT по таблице с теми же значениями параметров.
+     */
+    private String explainLastQueryOf(String table) throws Exception {
+        List<RecordedStatement> statements = StatementRecorder.stop();
+        RecordedStatement query = null;
+        for (RecordedStatement statement : statements) {
+            String sql = statement.sql().toLowerCase(Locale.ROOT);
+            if (sql.startsWith("select") && sql.contains(" from " + table + " ")) {
+                query = statement;
+            }
+        }
+        assertNotNull(query, () -> "No query of " + table + " among " + statements);
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query.sql())) {
+            for (Binding binding : query.bindings()) {
+                binding.method().invoke(statement, binding.args());
+            }
+            StringBuilder plan = new StringBuilder(query.sql()).append('\n');
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    private static void assertUsesIndex(String plan, String... indexNames) {
+        assertFalse(plan.contains("Seq Scan on cards") || plan.contains("Seq Scan on ledger_entries"), plan);
+        assertTrue(Arrays.stream(indexNames).anyMatch(plan::contains),
+                () -> "Expected one of " + Arrays.toString(indexNames) + " in plan:\n" + plan);
+    }
+
+    private record Binding(Method method, Object[] args) {
+    }
+
+    private record RecordedStatement(String sql, List<Binding> bindings) {
+    }
+
+    /**
+     * Оборачивает источник данных приложения и записывает подготовленные запросы, выполненные потоком теста
+     * между {@link #start()} и {@link #stop()}. Запросы фоновых задач не записываются.
+     */
+    private static final class StatementRecorder implements BeanPostProcessor {
+
+        private static final ThreadLocal<List<RecordedStatement>> RECORDED = new ThreadLocal<>();
+
+        static void start() {
+            RECORDED.set(new ArrayList<>());
+        }
+
+        static List<RecordedStatement> stop() {
+            List<RecordedStatement> recorded = RECORDED.get();
+            RECORDED.remove();
+            return recorded != null ? recorded : List.of();
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource)) {
+                return bean;
+            }
+            return proxy(DataSource.class, dataSource, (method, args, result) ->
+                    result instanceof Connection connection ? recordingConnection(connection) : result);
+        }
+
+        private static Connection recordingConnection(Connection connection) {
+            return proxy(Connection.class, connection, (method, args, result) ->
+                    method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement
+                            ? recordingStatement(statement, (String) args[0])
+                            : result);
+        }
+
+        private static PreparedStatement recordingStatement(PreparedStatement statement, String sql) {
+            List<Binding> bindings = new ArrayList<>();
+            return proxy(PreparedStatement.class, statement, (method, args, result) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length > 1 && args[0] instanceof Integer) {
+                    bindings.add(new Binding(method, args.clone()));
+                } else if (name.equals("clearParameters")) {
+                    bindings.clear();
+                } else if (name.startsWith("execute") && (args == null || args.length == 0) && RECORDED.get() != null) {
+                    RECORDED.get().add(new RecordedStatement(sql, List.copyOf(bindings)));
+                }
+                return result;
+            });
+        }
+
+        private interface AfterCall {
+            Object apply(Method method, Object[] args, Object result);
+        }
+
+        private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                try {
+                    return afterCall.apply(method, args, method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Slf4j
+class AesEncryptionServiceTest {
+
+    private static final String KEY = "IfYouSeeThisInProdJustDontLookAt";
+    private static final String NEW_KEY = "IfYouSeeThisInProdItIsTheNewKey!";
+    private static final String CARD_NUMBER = "4000123412341234";
+
+    private final AesEncryptionService service = new AesEncryptionService(KEY, 4);
+
+    @Test
+    void encryptDecryptRoundTrip() {
+        String encrypted = service.encrypt(CARD_NUMBER);
+
+        assertNotEquals(CARD_NUMBER, encrypted);
+        assertNotEquals(encrypted, service.encrypt(CARD_NUMBER)); // случайный IV
+        assertEquals(CARD_NUMBER, service.decrypt(encrypted));
+    }
+
+    @Test
+    void dataWithoutKeyVersionHeaderIsStillReadable() {
+        for (int i = 0; i < 1_000; i++) {
+            // Случайный IV старого формата иногда совпадает с заголовком: такие данные тоже должны читаться
+            assertEquals(CARD_NUMBER, service.decrypt(LegacyAes.encrypt(CARD_NUMBER)));
+        }
+    }
+
+    @Test
+    void rotatedKeyRingReadsDataOfAllKeyVersions() {
+        String legacy = LegacyAes.encrypt(CARD_NUMBER);
+        String version1 = service.encrypt(CARD_NUMBER);
+        AesEncryptionService rotated = new AesEncryptionService(NEW_KEY, 2, "1:" + KEY, 4);
+        String version2 = rotated.encrypt(CARD_NUMBER);
+
+        assertEquals(2, rotated.getActiveKeyVersion());
+        assertEquals(CARD_NUMBER, rotated.decrypt(legacy));
+        assertEquals(CARD_NUMBER, rotated.decrypt(version1));
+        assertEquals(CARD_NUMBER, rotated.decrypt(version2));
+        // Без прежнего ключа данные новой версии читаются, а старые нет
+        assertThrows(RuntimeException.class, () -> new AesEncryptionService(NEW_KEY, 2, null, 4).decrypt(version1));
+        assertEquals(CARD_NUMBER, new AesEncryptionService(NEW_KEY, 2, null, 4).decrypt(version2));
+    }
+
+    @Test
+    void keyVersionHeaderIsAuthenticated() {
+        AesEncryptionService rotated = new AesEncryptionService(NEW_KEY, 2, "1:" + KEY, 4);
+        byte[] raw = rotated.encryptToBytes(CARD_NUMBER);
+        raw[1] = 1;
+
+        assertThrows(RuntimeException.class, () -> rotated.decryptFromBytes(raw));
+    }
+
+    @Test
+    void binaryFormatCarriesSamePayloadAsBase64() {
+        byte[] binary = service.encryptToBytes(CARD_NUMBER);
+
+        // Миграция переводит строки в bytea через decode(card_number, 'base64'): оба представления взаимозаменяемы
+        assertEquals(CARD_NUMBER, service.decryptFromBytes(binary));
+        assertEquals(CARD_NUMBER, service.decrypt(Base64.getEncoder().encodeToString(binary)));
+        assertEquals(CARD_NUMBER, service.decryptFromBytes(Base64.getDecoder().decode(service.encrypt(CARD_NUMBER))));
+    }
+
+    @Test
+    void tamperedCiphertextIsRejected() {
+        byte[] raw = Base64.getDecoder().decode(service.encrypt(CARD_NUMBER));
+        raw[raw.length - 1] ^= 1;
+
+        assertThrows(RuntimeException.class, () -> service.decrypt(Base64.getEncoder().encodeToString(raw)));
+        // Пул остается рабочим после ошибки
+        assertEquals(CARD_NUMBER, service.decrypt(service.encrypt(CARD_NUMBER)));
+    }
+
+    @Test
+    void pooledCiphersAreSafeUnderConcurrency() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int task = 0; task < 64; task++) {
+                String number = String.format("%016d", task);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        assertEquals(number, service.decrypt(service.encrypt(number)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Сравнение с предыдущей реализацией, создававшей Cipher и SecureRandom на каждый вызов.
+     */
+    @Test
+    @Tag("benchmark")
+    void throughputComparedToPreviousImplementation() {
+        int iterations = 20_000;
+        String encrypted = service.encrypt(CARD_NUMBER);
+        String legacyEncrypted = LegacyAes.encrypt(CARD_NUMBER);
+
+        measure(iterations, service::encrypt);
+        measure(iterations, LegacyAes::encrypt);
+
+        log.info("AES-GCM encrypt x{}: pooled {} ms, previous {} ms", iterations,
+                measure(iterations, service::encrypt), measure(iterations, LegacyAes::encrypt));
+        log.info("AES-GCM decrypt x{}: pooled {} ms, previous {} ms", iterations,
+                measure(iterations, ignored -> service.decrypt(encrypted)),
+                measure(iterations, ignored -> LegacyAes.decrypt(legacyEncrypted)));
+    }
+
+    private static long measure(int iterations, UnaryOperator<String> operation) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.apply(CARD_NUMBER);
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Предыдущая реализация AesEncryptionService, сохраненная для сравнения формата и производительности.
+     */
+    private static final class LegacyAes {
+
+        private static final SecretKey SECRET_KEY = new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "AES");
+
+        static String encrypt(String data) {
+            try {
+                byte[] iv = new byte[12];
+                new SecureRandom().nextBytes(iv);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, SECRET_KEY, new GCMParameterSpec(128, iv));
+                byte[] encryptedBytes = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
+                byte[] encryptedDataWithIv = new byte[iv.length + encryptedBytes.length];
+                System.arraycopy(iv, 0, encryptedDataWithIv, 0, iv.length);
+                System.arraycopy(encryptedBytes, 0, encryptedDataWithIv, iv.length, encryptedBytes.length);
+                return Base64.getEncoder().encodeToString(encryptedDataWithIv);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        static String decrypt(String encryptedData) {
+            try {
+                byte[] encryptedDataWithIv = Base64.getDecoder().decode(encryptedData);
+                byte[] iv = new byte[12];
+                System.arraycopy(encryptedDataWithIv, 0, iv, 0, 12);
+                byte[] encryptedBytes = new byte[encryptedDataWithIv.length - 12];
+                System.arraycopy(encryptedDataWithIv, 12, encryptedBytes, 0, encryptedBytes.length);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, SECRET_KEY, new GCMParameterSpec(128, iv));
+                return new String(cipher.doFinal(encryptedBytes), StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.PostgresTestSchema;
+import Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.entity.User;
+import Polyakov.Bank.Card.Management.Systems.security.SecurityUserDetails;
+import Polyakov.Bank.Card.Management.Systems.service.CardService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Перевод в режиме atomic на настоящем PostgreSQL (см. {@link PostgresTestSchema}): нативные запросы
+ * суббалансов проверяются только базой.
+ */
+@SpringBootTest
+@DirtiesContext
+@EnabledIfEnvironmentVariable(named = PostgresTestSchema.URL_VARIABLE, matches = ".+")
+class AtomicTransferExecutorTest {
+
+    private static PostgresTestSchema schema;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID ownerId;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        schema = PostgresTestSchema.create();
+        schema.registerProperties(registry);
+    }
+
+    @AfterAll
+    static void dropSchema() throws Exception {
+        if (schema != null) {
+            schema.close();
+        }
+    }
+
+    @BeforeEach
+    void authenticate() {
+        ownerId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, password) VALUES (?, ?, 'x')", ownerId, ownerId + "@example.com");
+        User owner = new User();
+        owner.setId(ownerId);
+        owner.setEmail(ownerId + "@example.com");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new SecurityUserDetails(owner), null, List.of()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void overdraftIsRejectedWithoutChangingBalances() {
+        UUID from = insertCard(50_000);
+        UUID to = insertCard(0);
+
+        assertThrows(InsufficientFundsException.class, () -> cardService.transferFunds(transfer(from, to, "1000.00"), null));
+
+        assertEquals(50_000, balance(from));
+        assertEquals(0, balance(to));
+    }
+
+    @Test
+    void transferWithinBalanceMovesFunds() {
+        UUID from = insertCard(50_000);
+        UUID to = insertCard(0);
+
+        cardService.transferFunds(transfer(from, to, "125.50"), null);
+
+        assertEquals(37_450, balance(from));
+        assertEquals(12_550, balance(to));
+    }
+
+    private UUID insertCard(long balance) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO cards (id, owner_id, expiry_date, status, balance_minor, card_number_bin, card_number_last4) " +
+                "VALUES (?, ?, '12/30', 'ACTIVE', ?, decode(md5(random()::text), 'hex'), '0000')", id, ownerId, balance);
+        return id;
+    }
+
+    private long balance(UUID cardId) {
+        return jdbcTemplate.queryForObject("SELECT balance_minor FROM cards WHERE id = ?", Long.class, cardId);
+    }
+
+    private static TransferRequest transfer(UUID from, UUID to, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(from);
+        request.setToCardId(to);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
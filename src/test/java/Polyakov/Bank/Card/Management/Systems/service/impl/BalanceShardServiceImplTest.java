@@ -0,0 +1,157 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.PostgresTestSchema;
+import Polyakov.Bank.Card.Management.Systems.exception.CardOperationException;
+import Polyakov.Bank.Card.Management.Systems.job.CardBalanceShardFoldJob;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.model.entity.User;
+import Polyakov.Bank.Card.Management.Systems.security.SecurityUserDetails;
+import Polyakov.Bank.Card.Management.Systems.service.BalanceShardService;
+import Polyakov.Bank.Card.Management.Systems.service.CardService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Полный цикл суббалансов на настоящем PostgreSQL (см. {@link PostgresTestSchema}): включение, зачисления
+ * в суббалансы, свертка при нехватке средств и фоновой задачей, выключение. Фоновая свертка по расписанию
+ * отложена, чтобы шаги шли в заданном порядке.
+ */
+@SpringBootTest(properties = "app.balance-shards.fold.initial-delay-ms=3600000")
+@DirtiesContext
+@EnabledIfEnvironmentVariable(named = PostgresTestSchema.URL_VARIABLE, matches = ".+")
+class BalanceShardServiceImplTest {
+
+    private static PostgresTestSchema schema;
+
+    @Autowired
+    private BalanceShardService balanceShardService;
+
+    @Autowired
+    private CardBalanceShardFoldJob foldJob;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID ownerId;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        schema = PostgresTestSchema.create();
+        schema.registerProperties(registry);
+    }
+
+    @AfterAll
+    static void dropSchema() throws Exception {
+        if (schema != null) {
+            schema.close();
+        }
+    }
+
+    @BeforeEach
+    void authenticate() {
+        ownerId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, password) VALUES (?, ?, 'x')", ownerId, ownerId + "@example.com");
+        User owner = new User();
+        owner.setId(ownerId);
+        owner.setEmail(ownerId + "@example.com");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new SecurityUserDetails(owner), null, List.of()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void configureCreditDrainFoldAndDisable() {
+        UUID source = insertCard(100_000);
+        UUID hot = insertCard(50_000);
+
+        balanceShardService.configureShards(hot, 4);
+        assertEquals(4, shardCount(hot));
+
+        cardService.transferFunds(transfer(source, hot, "100.00"), null);
+        cardService.transferFunds(transfer(source, hot, "100.00"), null);
+        assertEquals(50_000, balance(hot));
+        assertEquals(20_000, shardSum(hot));
+
+        foldJob.run();
+        assertEquals(70_000, balance(hot));
+        assertEquals(0, shardSum(hot));
+
+        // Основного баланса не хватает: списание сворачивает суббалансы и повторяется
+        cardService.transferFunds(transfer(source, hot, "30.00"), null);
+        cardService.transferFunds(transfer(hot, source, "720.00"), null);
+        assertEquals(1_000, balance(hot));
+        assertEquals(0, shardSum(hot));
+
+        cardService.transferFunds(transfer(source, hot, "5.00"), null);
+        balanceShardService.configureShards(hot, 0);
+        assertEquals(1_500, balance(hot));
+        assertEquals(0, shardCount(hot));
+        assertEquals(148_500, balance(source));
+    }
+
+    @Test
+    void blockedShardedCardIsNotCredited() {
+        UUID source = insertCard(100_000);
+        UUID hot = insertCard(0);
+        balanceShardService.configureShards(hot, 4);
+        jdbcTemplate.update("UPDATE cards SET status = 'BLOCKED' WHERE id = ?", hot);
+
+        assertThrows(CardOperationException.class, () -> cardService.transferFunds(transfer(source, hot, "10.00"), null));
+
+        assertEquals(0, shardSum(hot));
+        assertEquals(100_000, balance(source));
+    }
+
+    private UUID insertCard(long balance) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO cards (id, owner_id, expiry_date, status, balance_minor, card_number_bin, card_number_last4) " +
+                "VALUES (?, ?, '12/30', 'ACTIVE', ?, decode(md5(random()::text), 'hex'), '0000')", id, ownerId, balance);
+        return id;
+    }
+
+    private long balance(UUID cardId) {
+        return jdbcTemplate.queryForObject("SELECT balance_minor FROM cards WHERE id = ?", Long.class, cardId);
+    }
+
+    private long shardSum(UUID cardId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance_minor), 0) FROM card_balance_shards WHERE card_id = ?",
+                Long.class, cardId);
+    }
+
+    private int shardCount(UUID cardId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM card_balance_shards WHERE card_id = ?", Integer.class, cardId);
+    }
+
+    private static TransferRequest transfer(UUID from, UUID to, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(from);
+        request.setToCardId(to);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
@@ -0,0 +1,110 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.PostgresTestSchema;
+import Polyakov.Bank.Card.Management.Systems.model.constant.CardExportFormat;
+import Polyakov.Bank.Card.Management.Systems.service.CardExportService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Выгрузка карт на настоящем PostgreSQL (см. {@link PostgresTestSchema}): фильтр по email владельца использует
+ * то же соединение с users, через которое подгружается владелец.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "Polyakov.Bank.Card.Management.Systems.service.impl.CardExportServiceImplTest$RecordingInspector")
+@DirtiesContext
+@EnabledIfEnvironmentVariable(named = PostgresTestSchema.URL_VARIABLE, matches = ".+")
+class CardExportServiceImplTest {
+
+    private static final Pattern USERS_JOIN = Pattern.compile("\\bjoin users\\b");
+
+    private static PostgresTestSchema schema;
+
+    @Autowired
+    private CardExportService cardExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        schema = PostgresTestSchema.create();
+        schema.registerProperties(registry);
+    }
+
+    @AfterAll
+    static void dropSchema() throws Exception {
+        if (schema != null) {
+            schema.close();
+        }
+    }
+
+    @Test
+    void ownerEmailFilterReusesOwnerFetchJoin() throws Exception {
+        String email = UUID.randomUUID() + "@example.com";
+        UUID cardId = insertCard(insertUser(email));
+        insertCard(insertUser(UUID.randomUUID() + "@example.com"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingInspector.STATEMENTS.clear();
+        long exported = cardExportService.exportCards(null, email, null, null, CardExportFormat.CSV, out);
+
+        assertEquals(1, exported);
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.contains(cardId + ",**** **** **** 0000," + email + ","), csv);
+        String sql = RecordingInspector.STATEMENTS.stream()
+                .filter(statement -> statement.startsWith("select") && statement.contains(" from cards "))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+        Matcher joins = USERS_JOIN.matcher(sql);
+        assertTrue(joins.find(), sql);
+        assertFalse(joins.find(), "users joined more than once: " + sql);
+    }
+
+    private UUID insertUser(String email) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, password) VALUES (?, ?, 'x')", id, email);
+        return id;
+    }
+
+    private UUID insertCard(UUID ownerId) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO cards (id, owner_id, expiry_date, status, balance_minor, card_number_bin, card_number_last4) " +
+                "VALUES (?, ?, '12/30', 'ACTIVE', 1000, decode(md5(random()::text), 'hex'), '0000')", id, ownerId);
+        return id;
+    }
+
+    /**
+     * Запоминает SQL, который генерирует Hibernate.
+     */
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
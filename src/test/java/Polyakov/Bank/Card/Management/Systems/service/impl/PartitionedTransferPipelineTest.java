@@ -0,0 +1,177 @@
+package Polyakov.Bank.Card.Management.Systems.service.impl;
+
+import Polyakov.Bank.Card.Management.Systems.exception.InsufficientFundsException;
+import Polyakov.Bank.Card.Management.Systems.model.dto.request.TransferRequest;
+import Polyakov.Bank.Card.Management.Systems.service.TransferProcessingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.hibernate.jdbc.Work;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionedTransferPipelineTest {
+
+    private static final int GROUP_SIZE = 20;
+
+    private final UUID ownerId = UUID.randomUUID();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TransferProcessingService transferProcessingService = mock(TransferProcessingService.class);
+    private final Connection connection = mock(Connection.class);
+    private final Savepoint savepoint = mock(Savepoint.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch firstTransferStarted = new CountDownLatch(1);
+    private final CountDownLatch groupQueued = new CountDownLatch(1);
+    private PartitionedTransferPipeline pipeline;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        Session session = mock(Session.class);
+        when(session.doReturningWork(any())).thenAnswer(invocation ->
+                invocation.<ReturningWork<?>>getArgument(0).execute(connection));
+        doAnswer(invocation -> {
+            invocation.<Work>getArgument(0).execute(connection);
+            return null;
+        }).when(session).doWork(any());
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+        pipeline = new PartitionedTransferPipeline(transferProcessingService, transactionManager, meterRegistry, 1, 100, 50);
+        ReflectionTestUtils.setField(pipeline, "entityManager", entityManager);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    void queuedTransfersCommitInOneTransaction() throws Exception {
+        List<CompletableFuture<UUID>> results = submitGroupBehindFirstTransfer(null);
+
+        for (CompletableFuture<UUID> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        // Первый перевод выполнен отдельной группой, остальные GROUP_SIZE — одной транзакцией
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager, never()).rollback(any());
+        assertEquals(GROUP_SIZE, (int) meterRegistry.summary("card.transfer.pipeline.group.size").max());
+        assertEquals(0.0, meterRegistry.counter("card.transfer.pipeline.group.fallbacks").count());
+        verify(connection, times(GROUP_SIZE + 1)).releaseSavepoint(savepoint);
+    }
+
+    @Test
+    void rejectedTransferRollsBackOnlyItsSavepoint() throws Exception {
+        BigDecimal rejectedAmount = new BigDecimal("999.00");
+        List<CompletableFuture<UUID>> results = submitGroupBehindFirstTransfer(rejectedAmount);
+
+        int rejected = 0;
+        for (CompletableFuture<UUID> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertInstanceOf(InsufficientFundsException.class, e.getCause());
+                rejected++;
+            }
+        }
+        assertEquals(1, rejected);
+        verify(transactionManager, times(2)).commit(any());
+        verify(connection).rollback(savepoint);
+        assertEquals(0.0, meterRegistry.counter("card.transfer.pipeline.group.fallbacks").count());
+    }
+
+    @Test
+    void cancelledTransferIsNotExecuted() throws Exception {
+        when(transferProcessingService.execute(eq(ownerId), any(), any())).thenAnswer(invocation -> {
+            if (firstTransferStarted.getCount() > 0) {
+                firstTransferStarted.countDown();
+                groupQueued.await(5, TimeUnit.SECONDS);
+            }
+            return UUID.randomUUID();
+        });
+        CompletableFuture<UUID> first = pipeline.submit(ownerId, transfer(BigDecimal.ONE), null);
+        firstTransferStarted.await(5, TimeUnit.SECONDS);
+        TransferRequest cancelledRequest = transfer(BigDecimal.TEN);
+        CompletableFuture<UUID> cancelled = pipeline.submit(ownerId, cancelledRequest, null);
+        CompletableFuture<UUID> next = pipeline.submit(ownerId, transfer(BigDecimal.ONE), null);
+
+        // Взятый писателем перевод отменить нельзя, ожидающий в очереди — можно
+        assertFalse(first.cancel(false));
+        assertTrue(cancelled.cancel(false));
+        groupQueued.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        next.get(5, TimeUnit.SECONDS);
+        assertThrows(CancellationException.class, () -> cancelled.get(5, TimeUnit.SECONDS));
+        verify(transferProcessingService, never()).execute(any(), eq(cancelledRequest), any());
+    }
+
+    /**
+     * Первый перевод задерживает писателя, пока в очередь не встанут еще GROUP_SIZE переводов; их писатель берет одной группой.
+     * Если rejectedAmount задан, перевод с этой суммой в середине группы получает отказ.
+     */
+    private List<CompletableFuture<UUID>> submitGroupBehindFirstTransfer(BigDecimal rejectedAmount) throws InterruptedException {
+        when(transferProcessingService.execute(eq(ownerId), any(), any())).thenAnswer(invocation -> {
+            TransferRequest request = invocation.getArgument(1);
+            if (firstTransferStarted.getCount() > 0) {
+                firstTransferStarted.countDown();
+                groupQueued.await(5, TimeUnit.SECONDS);
+            } else if (request.getAmount().equals(rejectedAmount)) {
+                throw new InsufficientFundsException("Insufficient funds");
+            }
+            return UUID.randomUUID();
+        });
+
+        List<CompletableFuture<UUID>> results = new ArrayList<>();
+        results.add(pipeline.submit(ownerId, transfer(BigDecimal.ONE), null));
+        firstTransferStarted.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            BigDecimal amount = i == GROUP_SIZE / 2 && rejectedAmount != null ? rejectedAmount : BigDecimal.ONE;
+            results.add(pipeline.submit(ownerId, transfer(amount), null));
+        }
+        groupQueued.countDown();
+        return results;
+    }
+
+    private static TransferRequest transfer(BigDecimal amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(UUID.randomUUID());
+        request.setToCardId(UUID.randomUUID());
+        request.setAmount(amount);
+        return request;
+    }
+}
@@ -0,0 +1,60 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatPreservingPermutationTest {
+
+    private static final byte[] KEY = "IfYouSeeThisInProdItIsThePermutationKey".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void isBijectionOnWholeDomain() {
+        for (long domainSize : new long[]{2, 10, 1_000, 100_003}) {
+            FormatPreservingPermutation permutation = new FormatPreservingPermutation(KEY, domainSize);
+            BitSet seen = new BitSet((int) domainSize);
+            for (long value = 0; value < domainSize; value++) {
+                long image = permutation.permute(value);
+
+                assertTrue(image >= 0 && image < domainSize);
+                seen.set((int) image);
+            }
+            assertEquals(domainSize, seen.cardinality(), "domain " + domainSize);
+        }
+    }
+
+    @Test
+    void sequentialValuesOfCardNumberDomainLookRandomAndDistinct() {
+        FormatPreservingPermutation permutation = new FormatPreservingPermutation(KEY, 1_000_000_000L);
+        Set<Long> images = new HashSet<>();
+        long previous = -1;
+        int ascending = 0;
+        for (long value = 0; value < 100_000; value++) {
+            long image = permutation.permute(value);
+            assertTrue(images.add(image));
+            if (image > previous) {
+                ascending++;
+            }
+            previous = image;
+        }
+        // Для случайного порядка примерно половина соседних пар возрастает
+        assertTrue(ascending > 45_000 && ascending < 55_000, "ascending pairs: " + ascending);
+    }
+
+    @Test
+    void differentKeysGiveDifferentPermutations() {
+        FormatPreservingPermutation first = new FormatPreservingPermutation(KEY, 1_000_000_000L);
+        FormatPreservingPermutation second = new FormatPreservingPermutation(
+                "AnotherPermutationKeyOfSufficientLength".getBytes(StandardCharsets.UTF_8), 1_000_000_000L);
+
+        assertEquals(first.permute(42), first.permute(42));
+        assertNotEquals(first.permute(42), second.permute(42));
+    }
+}
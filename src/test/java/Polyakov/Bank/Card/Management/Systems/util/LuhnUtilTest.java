@@ -0,0 +1,147 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import org.apache.commons.validator.routines.checkdigit.CheckDigitException;
+import org.apache.commons.validator.routines.checkdigit.LuhnCheckDigit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class LuhnUtilTest {
+
+    private static final int CARD_NUMBER_LENGTH = 16;
+
+    @Test
+    void matchesCommonsValidatorOnRandomNumbers() throws CheckDigitException {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            String number = randomDigits(random, 1 + random.nextInt(19));
+
+            assertEquals(LuhnCheckDigit.LUHN_CHECK_DIGIT.isValid(number), LuhnUtil.isValid(number), number);
+            assertEquals(LuhnCheckDigit.LUHN_CHECK_DIGIT.isValid(number),
+                    LuhnUtil.isValid(number.toCharArray(), 0, number.length()), number);
+            if (!number.chars().allMatch(c -> c == '0')) {
+                String expected = LuhnCheckDigit.LUHN_CHECK_DIGIT.calculate(number);
+                assertEquals(expected, LuhnUtil.calculateCheckDigit(number), number);
+                assertEquals(expected, String.valueOf(LuhnUtil.calculateCheckDigit(number.toCharArray(), 0, number.length())));
+            }
+        }
+    }
+
+    @Test
+    void separatorsAreIgnoredAndEdgeCasesRejected() {
+        assertTrue(LuhnUtil.isValid("4111 1111 1111 1111"));
+        assertTrue(LuhnUtil.isValid("4111-1111-1111-1111"));
+        assertFalse(LuhnUtil.isValid("4111 1111 1111 1112"));
+        assertFalse(LuhnUtil.isValid((CharSequence) null));
+        assertFalse(LuhnUtil.isValid(" "));
+        assertFalse(LuhnUtil.isValid("0000"));
+        assertEquals("1", LuhnUtil.calculateCheckDigit("411111111111111"));
+        assertThrows(IllegalArgumentException.class, () -> LuhnUtil.calculateCheckDigit(" "));
+        assertThrows(IllegalArgumentException.class, () -> LuhnUtil.calculateCheckDigit("abc"));
+    }
+
+    @Test
+    void generatedNumbersAreValid() {
+        SplittableRandom random = new SplittableRandom(7);
+        char[] digits = new char[CARD_NUMBER_LENGTH];
+        for (int i = 0; i < 10_000; i++) {
+            LuhnUtil.fillRandomValidNumber(digits, random);
+
+            assertTrue(LuhnCheckDigit.LUHN_CHECK_DIGIT.isValid(new String(digits)));
+        }
+    }
+
+    /**
+     * Сравнение генерации и проверки номера с прежним путем (IntStream + joining, regex и commons-validator).
+     */
+    @Test
+    @Tag("benchmark")
+    void throughputComparedToPreviousImplementation() throws CheckDigitException {
+        int iterations = 200_000;
+        SplittableRandom random = new SplittableRandom(1);
+        List<String> numbers = IntStream.range(0, 1_000)
+                .mapToObj(i -> randomDigits(random, CARD_NUMBER_LENGTH))
+                .toList();
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            generatePrimitive(iterations, random);
+            generatePrevious(iterations, random);
+            validatePrimitive(iterations, numbers);
+            validatePrevious(iterations, numbers);
+        }
+
+        log.info("Luhn generate x{}: primitive {} ms, previous {} ms", iterations,
+                generatePrimitive(iterations, random), generatePrevious(iterations, random));
+        log.info("Luhn validate x{}: primitive {} ms, previous {} ms", iterations,
+                validatePrimitive(iterations, numbers), validatePrevious(iterations, numbers));
+    }
+
+    private static long generatePrimitive(int iterations, SplittableRandom random) {
+        long start = System.nanoTime();
+        int blackhole = 0;
+        for (int i = 0; i < iterations; i++) {
+            char[] digits = new char[CARD_NUMBER_LENGTH];
+            LuhnUtil.fillRandomValidNumber(digits, random);
+            blackhole += new String(digits).hashCode();
+        }
+        return elapsedMillis(start, blackhole);
+    }
+
+    private static long generatePrevious(int iterations, SplittableRandom random) throws CheckDigitException {
+        long start = System.nanoTime();
+        int blackhole = 0;
+        for (int i = 0; i < iterations; i++) {
+            String prefix = IntStream.range(0, CARD_NUMBER_LENGTH - 1)
+                    .map(ignored -> random.nextInt(10))
+                    .mapToObj(String::valueOf)
+                    .collect(Collectors.joining());
+            String checkDigit = LuhnCheckDigit.LUHN_CHECK_DIGIT.calculate(prefix.replaceAll("\\D", ""));
+            blackhole += (prefix + checkDigit).hashCode();
+        }
+        return elapsedMillis(start, blackhole);
+    }
+
+    private static long validatePrimitive(int iterations, List<String> numbers) {
+        long start = System.nanoTime();
+        int blackhole = 0;
+        for (int i = 0; i < iterations; i++) {
+            blackhole += LuhnUtil.isValid(numbers.get(i % numbers.size())) ? 1 : 0;
+        }
+        return elapsedMillis(start, blackhole);
+    }
+
+    private static long validatePrevious(int iterations, List<String> numbers) {
+        long start = System.nanoTime();
+        int blackhole = 0;
+        for (int i = 0; i < iterations; i++) {
+            String digitsOnly = numbers.get(i % numbers.size()).replaceAll("\\D", "");
+            blackhole += LuhnCheckDigit.LUHN_CHECK_DIGIT.isValid(digitsOnly) ? 1 : 0;
+        }
+        return elapsedMillis(start, blackhole);
+    }
+
+    private static long elapsedMillis(long start, int blackhole) {
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        // Результат используется, чтобы JIT не выбросил вычисления
+        return blackhole == Integer.MIN_VALUE ? elapsed + 1 : elapsed;
+    }
+
+    private static String randomDigits(SplittableRandom random, int length) {
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(digits);
+    }
+}
@@ -0,0 +1,119 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class MoneyUtilTest {
+
+    @Test
+    void convertsExactlyAndRejectsExtraFractionDigits() {
+        assertEquals(10_050, MoneyUtil.toMinorUnits(new BigDecimal("100.5")));
+        assertEquals(10_050, MoneyUtil.toMinorUnits(new BigDecimal("100.500")));
+        assertEquals(-1, MoneyUtil.toMinorUnits(new BigDecimal("-0.01")));
+        assertEquals(10_000, MoneyUtil.toMinorUnits(new BigDecimal("1E+2")));
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.toMinorUnits(new BigDecimal("0.001")));
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.toMinorUnits(new BigDecimal("1E+18")));
+        assertFalse(MoneyUtil.isMinorUnitsExact(new BigDecimal("10.005")));
+        assertTrue(MoneyUtil.isMinorUnitsExact(new BigDecimal("9999999999999999.99")));
+
+        assertEquals(new BigDecimal("100.50"), MoneyUtil.toDecimal(10_050));
+        assertEquals(new BigDecimal("-0.01"), MoneyUtil.toDecimal(-1));
+    }
+
+    @Test
+    void filterBoundsAreRoundedInwards() {
+        assertEquals(1_001, MoneyUtil.toMinorUnitsCeiling(new BigDecimal("10.001")));
+        assertEquals(1_000, MoneyUtil.toMinorUnitsFloor(new BigDecimal("10.009")));
+        assertEquals(-1_000, MoneyUtil.toMinorUnitsCeiling(new BigDecimal("-10.009")));
+        assertEquals(-1_001, MoneyUtil.toMinorUnitsFloor(new BigDecimal("-10.001")));
+        assertEquals(Long.MAX_VALUE, MoneyUtil.toMinorUnitsFloor(new BigDecimal("1E+30")));
+        assertEquals(Long.MIN_VALUE, MoneyUtil.toMinorUnitsCeiling(new BigDecimal("-1E+30")));
+    }
+
+    @Test
+    void arithmeticOverflowIsReported() {
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.subtract(Long.MIN_VALUE, 1));
+    }
+
+    /**
+     * Сравнение пути перевода (проверка средств, списание, зачисление) на long и на BigDecimal
+     * по времени и объему аллокаций. Запускается профилем {@code benchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void transferPathComparedToBigDecimal() {
+        int iterations = 2_000_000;
+        SplittableRandom random = new SplittableRandom(3);
+        long[] minorAmounts = new long[1_024];
+        BigDecimal[] decimalAmounts = new BigDecimal[minorAmounts.length];
+        for (int i = 0; i < minorAmounts.length; i++) {
+            minorAmounts[i] = 1 + random.nextInt(100_000);
+            decimalAmounts[i] = MoneyUtil.toDecimal(minorAmounts[i]);
+        }
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            transferMinorUnits(iterations, minorAmounts);
+            transferBigDecimal(iterations, decimalAmounts);
+        }
+
+        long start = System.nanoTime();
+        long allocated = allocatedBytes();
+        long minorTotal = transferMinorUnits(iterations, minorAmounts);
+        long minorBytes = allocatedBytes() - allocated;
+        long minorMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        allocated = allocatedBytes();
+        BigDecimal decimalTotal = transferBigDecimal(iterations, decimalAmounts);
+        long decimalBytes = allocatedBytes() - allocated;
+        long decimalMillis = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("Transfer path x{}: long {} ms / {} bytes, BigDecimal {} ms / {} bytes",
+                iterations, minorMillis, minorBytes, decimalMillis, decimalBytes);
+        // Результаты используются, чтобы JIT не выбросил вычисления; переводы не меняют общую сумму
+        assertEquals(decimalTotal, MoneyUtil.toDecimal(minorTotal));
+    }
+
+    private static long transferMinorUnits(int iterations, long[] amounts) {
+        long from = Long.MAX_VALUE / 2;
+        long to = 0;
+        for (int i = 0; i < iterations; i++) {
+            long amount = amounts[i & (amounts.length - 1)];
+            if (from >= amount) {
+                from = MoneyUtil.subtract(from, amount);
+                to = MoneyUtil.add(to, amount);
+            }
+        }
+        return from + to;
+    }
+
+    private static BigDecimal transferBigDecimal(int iterations, BigDecimal[] amounts) {
+        BigDecimal from = MoneyUtil.toDecimal(Long.MAX_VALUE / 2);
+        BigDecimal to = BigDecimal.ZERO;
+        for (int i = 0; i < iterations; i++) {
+            BigDecimal amount = amounts[i & (amounts.length - 1)];
+            if (from.compareTo(amount) >= 0) {
+                from = from.subtract(amount);
+                to = to.add(amount);
+            }
+        }
+        return from.add(to);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,40 @@
+package Polyakov.Bank.Card.Management.Systems.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidOrderUtilTest {
+
+    @Test
+    void matchesUnsignedByteOrderOfPostgres() {
+        for (int i = 0; i < 10_000; i++) {
+            UUID first = UUID.randomUUID();
+            UUID second = UUID.randomUUID();
+
+            assertEquals(Integer.signum(Arrays.compareUnsigned(bytes(first), bytes(second))),
+                    Integer.signum(UuidOrderUtil.compare(first, second)), first + " vs " + second);
+        }
+    }
+
+    @Test
+    void differsFromUuidCompareToOnSignBit() {
+        UUID low = UUID.fromString("7fffffff-ffff-4fff-bfff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-4000-8000-000000000000");
+
+        assertTrue(UuidOrderUtil.compare(low, high) < 0);
+        assertTrue(low.compareTo(high) > 0);
+    }
+
+    private static byte[] bytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+}